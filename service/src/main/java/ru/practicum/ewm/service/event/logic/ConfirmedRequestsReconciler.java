@@ -0,0 +1,47 @@
+package ru.practicum.ewm.service.event.logic;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.practicum.ewm.service.event.models.event.EventRepository;
+import ru.practicum.ewm.service.participationRequest.models.ParticipationRequestRepository;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Repairs events whose confirmed request counter no longer matches their CONFIRMED requests. Drifted
+ * events are recounted in chunks, each in its own transaction: the chunk's rows are locked first, so a
+ * counter update committed concurrently is either already visible to the grouped count or waits for it.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class ConfirmedRequestsReconciler {
+    private final EventRepository eventRepository;
+    private final ParticipationRequestRepository participationRequestRepository;
+    private final TransactionTemplate transactionTemplate;
+    @Value("${CONFIRMED_REQUESTS_RECONCILE_BATCH_SIZE:500}")
+    private int batchSize;
+
+    @Scheduled(initialDelayString = "${CONFIRMED_REQUESTS_RECONCILE_INTERVAL_MS:3600000}",
+            fixedDelayString = "${CONFIRMED_REQUESTS_RECONCILE_INTERVAL_MS:3600000}")
+    public void reconcile() {
+        List<Long> eventIds = eventRepository.findIdsWithConfirmedRequestsDrift();
+        if (eventIds.isEmpty()) {
+            return;
+        }
+        log.warn("Confirmed request counters drifted for {} events, recounting: {}", eventIds.size(), eventIds);
+        for (int from = 0; from < eventIds.size(); from += batchSize) {
+            List<Long> chunk = eventIds.subList(from, Math.min(eventIds.size(), from + batchSize));
+            transactionTemplate.executeWithoutResult(status -> {
+                eventRepository.lockByIds(chunk);
+                Map<Long, Long> confirmedRequests = participationRequestRepository.countConfirmedByEventIds(chunk);
+                chunk.forEach(eventId -> eventRepository.setConfirmedRequests(eventId, confirmedRequests.getOrDefault(eventId, 0L)));
+            });
+        }
+    }
+}
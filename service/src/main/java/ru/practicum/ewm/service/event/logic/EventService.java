@@ -1,10 +1,14 @@
 package ru.practicum.ewm.service.event.logic;
 
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.RequiredArgsConstructor;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.bind.annotation.PathVariable;
@@ -19,18 +23,24 @@ import ru.practicum.ewm.service.event.models.location.LocationRepository;
 import ru.practicum.ewm.service.participationRequest.models.*;
 import ru.practicum.ewm.service.user.models.User;
 import ru.practicum.ewm.service.user.models.UserRepository;
+import ru.practicum.ewm.service.util.OffsetPageRequest;
 import ru.practicum.ewm.service.util.UtilConstants;
 import ru.practicum.ewm.service.util.exception.ConflictException;
 import ru.practicum.ewm.service.util.exception.NotFoundException;
 import ru.practicum.ewm.stats.client.StatsClient;
+import ru.practicum.ewm.stats.client.StatsClientOptions;
 import ru.practicum.ewm.stats.dto.EndpointHitDto;
 import ru.practicum.ewm.stats.dto.ViewStatsDto;
 
 import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
 import javax.servlet.http.HttpServletRequest;
 import javax.validation.Valid;
+import java.nio.file.Paths;
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
 import java.util.stream.Collectors;
 
 @Service
@@ -41,13 +51,99 @@ public class EventService {
     private final CategoryRepository categoryRepository;
     private final LocationRepository locationRepository;
     private final ParticipationRequestRepository participationRequestRepository;
+    private final MeterRegistry meterRegistry;
     @Value("${STAT_SERVER_URL:http://localhost:9090}")
     private String statClientUrl;
+    @Value("${STAT_CLIENT_BATCH_SIZE:1}")
+    private int statClientBatchSize;
+    @Value("${STAT_CLIENT_BATCH_LINGER_MS:5}")
+    private long statClientBatchLingerMs;
+    @Value("${STAT_CLIENT_BATCH_QUEUE_CAPACITY:16384}")
+    private int statClientBatchQueueCapacity;
+    @Value("${STAT_CLIENT_SPOOL_PATH:}")
+    private String statClientSpoolPath;
+    @Value("${STAT_CLIENT_SPOOL_MAX_MB:64}")
+    private long statClientSpoolMaxMb;
+    @Value("${STAT_CLIENT_QUERY_TIMEOUT_MS:5000}")
+    private long statClientQueryTimeoutMs;
+    @Value("${STAT_CLIENT_HIT_TIMEOUT_MS:5000}")
+    private long statClientHitTimeoutMs;
+    @Value("${STAT_CLIENT_QUERY_CACHE_TTL_MS:0}")
+    private long statClientQueryCacheTtlMs;
+    @Value("${STAT_CLIENT_AFTER_HIT_LINGER_MS:5}")
+    private long statClientAfterHitLingerMs;
+    @Value("${STAT_CLIENT_URI_CHUNK_SIZE:100}")
+    private int statClientUriChunkSize;
+    @Value("${STAT_CLIENT_QUERY_CONCURRENCY:4}")
+    private int statClientQueryConcurrency;
+    @Value("${STAT_CLIENT_POST_QUERIES:false}")
+    private boolean statClientPostQueries;
+    @Value("${STAT_CLIENT_VIEWS_CACHE_SIZE:0}")
+    private long statClientViewsCacheSize;
+    @Value("${STAT_CLIENT_VIEWS_CACHE_TTL_MS:10000}")
+    private long statClientViewsCacheTtlMs;
+    @Value("${STAT_CLIENT_VIEWS_CACHE_MAX_STALE_MS:60000}")
+    private long statClientViewsCacheMaxStaleMs;
     private StatsClient statsClient;
 
     @PostConstruct
     private void init() {
-        statsClient = new StatsClient(statClientUrl);
+        statsClient = new StatsClient(StatsClientOptions.builder()
+                .serverUrl(statClientUrl)
+                .batchSize(statClientBatchSize)
+                .batchLinger(Duration.ofMillis(statClientBatchLingerMs))
+                .batchQueueCapacity(statClientBatchQueueCapacity)
+                .spoolPath(statClientSpoolPath.isBlank() ? null : Paths.get(statClientSpoolPath))
+                .spoolCapacityBytes(statClientSpoolMaxMb * 1024 * 1024)
+                .queryTimeout(Duration.ofMillis(statClientQueryTimeoutMs))
+                .hitTimeout(Duration.ofMillis(statClientHitTimeoutMs))
+                .queryCacheTtl(Duration.ofMillis(statClientQueryCacheTtlMs))
+                .afterHitQueryLinger(Duration.ofMillis(statClientAfterHitLingerMs))
+                .uriChunkSize(statClientUriChunkSize)
+                .queryConcurrency(statClientQueryConcurrency)
+                .postQueries(statClientPostQueries)
+                .viewsCacheMaxSize(statClientViewsCacheSize)
+                .viewsCacheTtl(Duration.ofMillis(statClientViewsCacheTtlMs))
+                .viewsCacheMaxStaleness(Duration.ofMillis(statClientViewsCacheMaxStaleMs))
+                .build());
+        if (statClientBatchSize > 1) {
+            FunctionCounter.builder("stats.client.batch.dropped", statsClient, StatsClient::getBatchDroppedHits)
+                    .description("Hits dropped because the batch queue was full or a batch failed to send")
+                    .register(meterRegistry);
+        }
+        if (!statClientSpoolPath.isBlank()) {
+            Gauge.builder("stats.client.spool.pending", statsClient, StatsClient::getSpoolPendingHits)
+                    .description("Hits spooled but not yet accepted by the stats server")
+                    .register(meterRegistry);
+            Gauge.builder("stats.client.spool.dropped", statsClient, StatsClient::getSpoolDroppedHits)
+                    .description("Hits dropped because the spool was full or the stats server rejected them")
+                    .register(meterRegistry);
+            Gauge.builder("stats.client.spool.lag", statsClient, client -> client.getSpoolLag().toMillis())
+                    .description("Age of the oldest spooled hit")
+                    .baseUnit("milliseconds")
+                    .register(meterRegistry);
+        }
+        if (statClientViewsCacheSize > 0) {
+            FunctionCounter.builder("stats.client.views.cache.requests", statsClient, client -> client.getViewsCacheStats().hitCount())
+                    .tag("result", "hit")
+                    .description("Views lookups answered by the stats client cache")
+                    .register(meterRegistry);
+            FunctionCounter.builder("stats.client.views.cache.requests", statsClient, client -> client.getViewsCacheStats().missCount())
+                    .tag("result", "miss")
+                    .description("Views lookups answered by the stats client cache")
+                    .register(meterRegistry);
+            FunctionCounter.builder("stats.client.views.cache.evictions", statsClient, client -> client.getViewsCacheStats().evictionCount())
+                    .description("Views entries evicted to stay within the cache size")
+                    .register(meterRegistry);
+            Gauge.builder("stats.client.views.cache.hit.ratio", statsClient, client -> client.getViewsCacheStats().hitRate())
+                    .description("Share of views lookups answered by the stats client cache")
+                    .register(meterRegistry);
+        }
+    }
+
+    @PreDestroy
+    private void destroy() {
+        statsClient.close();
     }
 
     @Transactional
@@ -62,6 +158,7 @@ public class EventService {
         event.setInitiator(user);
         event.setCreatedOn(LocalDateTime.now());
         event.setState(EventState.PENDING);
+        event.setConfirmedRequests(0L);
         if (eventNewDto.getPaid() == null) {
             event.setPaid(false);
         }
@@ -162,7 +259,7 @@ public class EventService {
                                                                                  @Valid @RequestBody EventRequestStatusUpdateRequest eventRequestStatusUpdateRequest) {
         findUserById(userId);
         Event event = findEventById(eventId);
-        long confirmLimit = event.getParticipantLimit() - participationRequestRepository.countByEventIdAndStatus(eventId, ParticipationRequestState.CONFIRMED);
+        long confirmLimit = event.getParticipantLimit() - event.getConfirmedRequests();
         if (confirmLimit <= 0) {
             throw new ConflictException("Достигнут лимит участников");
         }
@@ -177,10 +274,14 @@ public class EventService {
                 .confirmedRequests(new ArrayList<>())
                 .rejectedRequests(new ArrayList<>())
                 .build();
+        long confirmedDelta = 0;
         for (ParticipationRequest req : requestList) {
             if (!req.getEvent().getId().equals(eventId)) {
                 throw new NotFoundException("Заявка на участие с id=" + req.getId() + " не найдена");
             }
+            if (req.getStatus().equals(ParticipationRequestState.CONFIRMED)) {
+                confirmedDelta--;
+            }
             if (confirmLimit <= 0) {
                 req.setStatus(ParticipationRequestState.REJECTED);
                 result.getRejectedRequests().add(ParticipationRequestMapper.INSTANCE.toDto(req));
@@ -191,6 +292,7 @@ public class EventService {
                     req.setStatus(ParticipationRequestState.CONFIRMED);
                     result.getConfirmedRequests().add(ParticipationRequestMapper.INSTANCE.toDto(req));
                     confirmLimit--;
+                    confirmedDelta++;
                     break;
                 case REJECTED:
                     req.setStatus(ParticipationRequestState.REJECTED);
@@ -198,6 +300,12 @@ public class EventService {
                     break;
             }
         }
+        if (confirmedDelta > 0 && eventRepository.reserveConfirmedRequests(eventId, confirmedDelta) == 0) {
+            throw new ConflictException("Достигнут лимит участников");
+        }
+        if (confirmedDelta < 0) {
+            eventRepository.releaseConfirmedRequests(eventId, -confirmedDelta);
+        }
         participationRequestRepository.saveAll(requestList);
         return result;
     }
@@ -213,6 +321,7 @@ public class EventService {
         if (categories != null && categories.size() == 1 && categories.get(0).equals(0L)) {
             categories = null;
         }
+        boolean fixedStart = rangeStart != null;
         if (rangeStart == null) {
             rangeStart = LocalDateTime.now();
         }
@@ -223,18 +332,18 @@ public class EventService {
         List<String> eventUrls = page.getContent().stream()
                 .map(event -> "/events/" + event.getId())
                 .collect(Collectors.toList());
-        List<ViewStatsDto> viewStatsDtos = statsClient.getStats(rangeStart.format(UtilConstants.getDefaultDateTimeFormatter()),
-                rangeEnd.format(UtilConstants.getDefaultDateTimeFormatter()), eventUrls, true);
-        return page.getContent().stream()
+        CompletableFuture<List<ViewStatsDto>> viewStatsFuture = getViewsFuture(rangeStart, rangeEnd, eventUrls, fixedStart);
+        List<EventFullDto> eventFullDtoList = page.getContent().stream()
                 .map(EventMapper.INSTANCE::toFullDto)
-                .peek(dto -> {
-                    Optional<ViewStatsDto> matchingStats = viewStatsDtos.stream()
-                            .filter(statsDto -> statsDto.getUri().equals("/events/" + dto.getId()))
-                            .findFirst();
-                    dto.setViews(matchingStats.map(ViewStatsDto::getHits).orElse(0L));
-                })
-                .peek(dto -> dto.setConfirmedRequests(participationRequestRepository.countByEventIdAndStatus(dto.getId(), ParticipationRequestState.CONFIRMED)))
                 .collect(Collectors.toList());
+        List<ViewStatsDto> viewStatsDtos = viewStatsFuture.join();
+        eventFullDtoList.forEach(dto -> {
+            Optional<ViewStatsDto> matchingStats = viewStatsDtos.stream()
+                    .filter(statsDto -> statsDto.getUri().equals("/events/" + dto.getId()))
+                    .findFirst();
+            dto.setViews(matchingStats.map(ViewStatsDto::getHits).orElse(0L));
+        });
+        return eventFullDtoList;
     }
 
     @Transactional(readOnly = true)
@@ -265,48 +374,33 @@ public class EventService {
     @Transactional(readOnly = true)
     public List<EventShortDto> getAllPublic(String text, List<Long> categories, Boolean paid, LocalDateTime rangeStart,
                                             LocalDateTime rangeEnd, boolean onlyAvailable, PublicEventController.SortMode sort,
-                                            int from, int size, HttpServletRequest request) {
+                                            int from, int size, LocalDateTime afterEventDate, Long afterId,
+                                            HttpServletRequest request) {
         statsClient.createEndpointHit(EndpointHitDto.builder().app("ewm").uri(request.getRequestURI())
                 .ip(request.getRemoteAddr()).hitTimestamp(LocalDateTime.now()).build());
         if (categories != null && categories.size() == 1 && categories.get(0).equals(0L)) {
             categories = null;
         }
+        boolean fixedStart = rangeStart != null;
         if (rangeStart == null) {
             rangeStart = LocalDateTime.now();
         }
         if (rangeEnd == null) {
             rangeEnd = UtilConstants.getMaxDateTime();
         }
-        List<Event> eventList = eventRepository.getAllPublic(text, categories, paid, rangeStart, rangeEnd);
-        if (onlyAvailable) {
-            eventList = eventList.stream()
-                    .filter(event -> event.getParticipantLimit().equals(0)
-                            || event.getParticipantLimit() < participationRequestRepository.countByEventIdAndStatus(event.getId(), ParticipationRequestState.CONFIRMED))
-                    .collect(Collectors.toList());
-        }
-        List<String> eventUrls = eventList.stream()
-                .map(event -> "/events/" + event.getId())
-                .collect(Collectors.toList());
-        List<ViewStatsDto> viewStatsDtos = statsClient.getStats(rangeStart.format(UtilConstants.getDefaultDateTimeFormatter()),
-                rangeEnd.format(UtilConstants.getDefaultDateTimeFormatter()), eventUrls, true);
-        List<EventShortDto> eventShortDtoList = eventList.stream()
-                .map(EventMapper.INSTANCE::toShortDto)
-                .peek(dto -> {
-                    Optional<ViewStatsDto> matchingStats = viewStatsDtos.stream()
-                            .filter(statsDto -> statsDto.getUri().equals("/events/" + dto.getId()))
-                            .findFirst();
-                    dto.setViews(matchingStats.map(ViewStatsDto::getHits).orElse(0L));
-                })
-                .peek(dto -> dto.setConfirmedRequests(participationRequestRepository.countByEventIdAndStatus(dto.getId(), ParticipationRequestState.CONFIRMED)))
-                .collect(Collectors.toList());
-        switch (sort) {
-            case EVENT_DATE:
-                eventShortDtoList.sort(Comparator.comparing(EventShortDto::getEventDate));
-                break;
-            case VIEWS:
-                eventShortDtoList.sort(Comparator.comparing(EventShortDto::getViews).reversed());
-                break;
+        if (sort == PublicEventController.SortMode.EVENT_DATE) {
+            Sort byEventDate = Sort.by("eventDate", "id");
+            List<Event> eventList = afterEventDate != null ?
+                    eventRepository.findAllPublicAfter(text, categories, paid, rangeStart, rangeEnd, onlyAvailable,
+                            afterEventDate, afterId, PageRequest.of(0, size, byEventDate)) :
+                    eventRepository.findAllPublic(text, categories, paid, rangeStart, rangeEnd, onlyAvailable,
+                            new OffsetPageRequest(from, size, byEventDate));
+            return toShortDtosWithViews(eventList, rangeStart, rangeEnd, fixedStart);
         }
+        List<Event> eventList = eventRepository.findAllPublic(text, categories, paid, rangeStart, rangeEnd, onlyAvailable,
+                Pageable.unpaged());
+        List<EventShortDto> eventShortDtoList = toShortDtosWithViews(eventList, rangeStart, rangeEnd, fixedStart);
+        eventShortDtoList.sort(Comparator.comparing(EventShortDto::getViews).reversed());
         if (from >= eventShortDtoList.size()) {
             return Collections.emptyList();
         }
@@ -320,21 +414,52 @@ public class EventService {
         if (!event.getState().equals(EventState.PUBLISHED)) {
             throw new NotFoundException("Событие с id=" + eventId + " не найдено");
         }
-        statsClient.createEndpointHit(EndpointHitDto.builder()
+        EndpointHitDto hit = EndpointHitDto.builder()
                 .app("ewm")
                 .uri(request.getRequestURI())
                 .ip(request.getRemoteAddr())
                 .hitTimestamp(LocalDateTime.now())
-                .build());
+                .build();
         List<String> eventUrls = Collections.singletonList("/events/" + event.getId());
-        List<ViewStatsDto> viewStatsDtos = statsClient.getStats(UtilConstants.getMinDateTime().format(UtilConstants.getDefaultDateTimeFormatter()),
+        CompletableFuture<List<ViewStatsDto>> viewStatsFuture = statsClient.getViewsAfterHitFuture(hit,
+                UtilConstants.getMinDateTime().format(UtilConstants.getDefaultDateTimeFormatter()),
                 UtilConstants.getMaxDateTime().plusYears(1).format(UtilConstants.getDefaultDateTimeFormatter()), eventUrls, true);
         EventFullDto dto = EventMapper.INSTANCE.toFullDto(event);
+        List<ViewStatsDto> viewStatsDtos = viewStatsFuture.join();
         dto.setViews(viewStatsDtos.isEmpty() ? 0L : viewStatsDtos.get(0).getHits());
-        dto.setConfirmedRequests(participationRequestRepository.countByEventIdAndStatus(dto.getId(), ParticipationRequestState.CONFIRMED));
         return dto;
     }
 
+    private List<EventShortDto> toShortDtosWithViews(List<Event> eventList, LocalDateTime rangeStart, LocalDateTime rangeEnd,
+                                                     boolean fixedStart) {
+        if (eventList.isEmpty()) {
+            return new ArrayList<>();
+        }
+        List<String> eventUrls = eventList.stream()
+                .map(event -> "/events/" + event.getId())
+                .collect(Collectors.toList());
+        CompletableFuture<List<ViewStatsDto>> viewStatsFuture = getViewsFuture(rangeStart, rangeEnd, eventUrls, fixedStart);
+        List<EventShortDto> eventShortDtoList = eventList.stream()
+                .map(EventMapper.INSTANCE::toShortDto)
+                .collect(Collectors.toList());
+        List<ViewStatsDto> viewStatsDtos = viewStatsFuture.join();
+        eventShortDtoList.forEach(dto -> {
+            Optional<ViewStatsDto> matchingStats = viewStatsDtos.stream()
+                    .filter(statsDto -> statsDto.getUri().equals("/events/" + dto.getId()))
+                    .findFirst();
+            dto.setViews(matchingStats.map(ViewStatsDto::getHits).orElse(0L));
+        });
+        return eventShortDtoList;
+    }
+
+    private CompletableFuture<List<ViewStatsDto>> getViewsFuture(LocalDateTime rangeStart, LocalDateTime rangeEnd,
+                                                                 List<String> eventUrls, boolean fixedStart) {
+        String start = rangeStart.format(UtilConstants.getDefaultDateTimeFormatter());
+        String end = rangeEnd.format(UtilConstants.getDefaultDateTimeFormatter());
+        return fixedStart ? statsClient.getViewsFuture(start, end, eventUrls, true) :
+                statsClient.getStatsFuture(start, end, eventUrls, true);
+    }
+
     private Event findEventById(long id) {
         return eventRepository.findById(id)
                 .orElseThrow(() -> new NotFoundException("Событие с id=" + id + " не найдено"));
@@ -32,11 +32,20 @@ public class PublicEventController {
                                       @RequestParam(defaultValue = "false") boolean onlyAvailable,
                                       @RequestParam(defaultValue = "VIEWS") SortMode sort,
                                       @Valid @RequestParam(defaultValue = "0") @PositiveOrZero int from,
-                                      @Valid @RequestParam(defaultValue = "10") @Positive int size, HttpServletRequest request) {
+                                      @Valid @RequestParam(defaultValue = "10") @Positive int size,
+                                      @RequestParam(required = false) @DateTimeFormat(pattern = UtilConstants.DATETIME_FORMAT) LocalDateTime afterEventDate,
+                                      @RequestParam(required = false) Long afterId, HttpServletRequest request) {
         if (rangeStart != null && rangeEnd != null && rangeStart.isAfter(rangeEnd)) {
             throw new BadRequestException("Дата начала должна предшествовать дате окончания.");
         }
-        return eventService.getAllPublic(text, categories, paid, rangeStart, rangeEnd, onlyAvailable, sort, from, size, request);
+        if ((afterEventDate == null) != (afterId == null)) {
+            throw new BadRequestException("Параметры afterEventDate и afterId задаются вместе.");
+        }
+        if (afterEventDate != null && sort != SortMode.EVENT_DATE) {
+            throw new BadRequestException("Постраничный вывод по курсору доступен только при сортировке EVENT_DATE.");
+        }
+        return eventService.getAllPublic(text, categories, paid, rangeStart, rangeEnd, onlyAvailable, sort, from, size,
+                afterEventDate, afterId, request);
     }
 
     @GetMapping("{eventId}")
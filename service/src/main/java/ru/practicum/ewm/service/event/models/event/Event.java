@@ -48,4 +48,6 @@ public class Event {
     private Boolean paid;
     @Column(name = "event_is_request_moderation")
     private Boolean requestModeration;
+    @Column(name = "event_confirmed_requests", insertable = false, updatable = false)
+    private Long confirmedRequests;
 }
@@ -11,6 +11,7 @@ public interface EventMapper {
     EventMapper INSTANCE = Mappers.getMapper(EventMapper.class);
 
     @Mapping(target = "id", ignore = true)
+    @Mapping(target = "confirmedRequests", ignore = true)
     @Mapping(target = "eventDate", source = "dto.eventTimestamp")
     @Mapping(target = "category", source = "category")
     @Mapping(target = "location", source = "location")
@@ -3,11 +3,13 @@ package ru.practicum.ewm.service.event.models.event;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
 @Repository
@@ -31,10 +33,58 @@ public interface EventRepository extends JpaRepository<Event, Long> {
             "AND (LOWER(e.annotation) LIKE LOWER(CONCAT('%', :text, '%')) OR LOWER(e.description) LIKE LOWER(CONCAT('%', :text, '%'))) " +
             "AND ((:categories) IS NULL OR e.category.id IN :categories) " +
             "AND ((:paid) IS NULL OR e.paid = :paid) " +
-            "AND (e.eventDate BETWEEN :rangeStart AND :rangeEnd)")
-    List<Event> getAllPublic(@Param("text") String text,
-                             @Param("categories") List<Long> categories,
-                             @Param("paid") Boolean paid,
-                             @Param("rangeStart") LocalDateTime rangeStart,
-                             @Param("rangeEnd") LocalDateTime rangeEnd);
+            "AND (e.eventDate BETWEEN :rangeStart AND :rangeEnd) " +
+            "AND (:onlyAvailable = FALSE OR e.participantLimit = 0 OR e.confirmedRequests < e.participantLimit)")
+    List<Event> findAllPublic(@Param("text") String text,
+                              @Param("categories") List<Long> categories,
+                              @Param("paid") Boolean paid,
+                              @Param("rangeStart") LocalDateTime rangeStart,
+                              @Param("rangeEnd") LocalDateTime rangeEnd,
+                              @Param("onlyAvailable") boolean onlyAvailable,
+                              Pageable pageable);
+
+    @Query("SELECT e FROM Event e " +
+            "WHERE (e.state = 'PUBLISHED') " +
+            "AND (LOWER(e.annotation) LIKE LOWER(CONCAT('%', :text, '%')) OR LOWER(e.description) LIKE LOWER(CONCAT('%', :text, '%'))) " +
+            "AND ((:categories) IS NULL OR e.category.id IN :categories) " +
+            "AND ((:paid) IS NULL OR e.paid = :paid) " +
+            "AND (e.eventDate BETWEEN :rangeStart AND :rangeEnd) " +
+            "AND (:onlyAvailable = FALSE OR e.participantLimit = 0 OR e.confirmedRequests < e.participantLimit) " +
+            "AND (e.eventDate > :afterEventDate OR (e.eventDate = :afterEventDate AND e.id > :afterId))")
+    List<Event> findAllPublicAfter(@Param("text") String text,
+                                   @Param("categories") List<Long> categories,
+                                   @Param("paid") Boolean paid,
+                                   @Param("rangeStart") LocalDateTime rangeStart,
+                                   @Param("rangeEnd") LocalDateTime rangeEnd,
+                                   @Param("onlyAvailable") boolean onlyAvailable,
+                                   @Param("afterEventDate") LocalDateTime afterEventDate,
+                                   @Param("afterId") Long afterId,
+                                   Pageable pageable);
+
+    @Modifying
+    @Query("UPDATE Event e SET e.confirmedRequests = e.confirmedRequests + :count " +
+            "WHERE e.id = :eventId " +
+            "AND (e.participantLimit = 0 OR e.confirmedRequests + :count <= e.participantLimit)")
+    int reserveConfirmedRequests(@Param("eventId") Long eventId,
+                                 @Param("count") long count);
+
+    @Modifying
+    @Query("UPDATE Event e SET e.confirmedRequests = e.confirmedRequests - :count WHERE e.id = :eventId")
+    int releaseConfirmedRequests(@Param("eventId") Long eventId,
+                                 @Param("count") long count);
+
+    @Query(value = "SELECT e.event_id FROM events e " +
+            "LEFT JOIN participation_requests pr ON pr.participation_request_event_id = e.event_id " +
+            "AND pr.participation_request_status = 'CONFIRMED' " +
+            "GROUP BY e.event_id " +
+            "HAVING e.event_confirmed_requests <> COUNT(pr.participation_request_id)", nativeQuery = true)
+    List<Long> findIdsWithConfirmedRequestsDrift();
+
+    @Query(value = "SELECT event_id FROM events WHERE event_id IN (:eventIds) ORDER BY event_id FOR UPDATE", nativeQuery = true)
+    List<Long> lockByIds(@Param("eventIds") Collection<Long> eventIds);
+
+    @Modifying
+    @Query("UPDATE Event e SET e.confirmedRequests = :count WHERE e.id = :eventId")
+    int setConfirmedRequests(@Param("eventId") Long eventId,
+                             @Param("count") long count);
 }
@@ -2,6 +2,7 @@ package ru.practicum.ewm.service.participationRequest.logic;
 
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 import ru.practicum.ewm.service.event.models.event.Event;
 import ru.practicum.ewm.service.event.models.event.EventRepository;
 import ru.practicum.ewm.service.event.models.event.EventState;
@@ -22,6 +23,7 @@ public class ParticipationRequestService {
     private final UserRepository userRepository;
     private final EventRepository eventRepository;
 
+    @Transactional
     public ParticipationRequestDto create(long userId, long eventId) {
         User requester = findUserById(userId);
         Event event = findEventById(eventId);
@@ -31,29 +33,36 @@ public class ParticipationRequestService {
         if (!event.getState().equals(EventState.PUBLISHED)) {
             throw new ConflictException("Невозможно принять участие в неопубликованном мероприятии");
         }
-        if (event.getParticipantLimit() > 0) {
-            if (event.getParticipantLimit() <= participationRequestRepository.countByEventIdAndStatus(eventId, ParticipationRequestState.CONFIRMED)) {
-                throw new ConflictException("Количество заявок на участие превысило лимит для мероприятия");
-            }
+        if (event.getParticipantLimit() > 0 && event.getParticipantLimit() <= event.getConfirmedRequests()) {
+            throw new ConflictException("Количество заявок на участие превысило лимит для мероприятия");
         }
         ParticipationRequest participationRequest = new ParticipationRequest();
         participationRequest.setRequester(requester);
         participationRequest.setEvent(event);
         participationRequest.setCreated(LocalDateTime.now());
         participationRequest.setStatus(event.getRequestModeration() && !event.getParticipantLimit().equals(0) ? ParticipationRequestState.PENDING : ParticipationRequestState.CONFIRMED);
+        if (participationRequest.getStatus().equals(ParticipationRequestState.CONFIRMED)
+                && eventRepository.reserveConfirmedRequests(eventId, 1) == 0) {
+            throw new ConflictException("Количество заявок на участие превысило лимит для мероприятия");
+        }
         return ParticipationRequestMapper.INSTANCE.toDto(participationRequestRepository.save(participationRequest));
     }
 
+    @Transactional
     public ParticipationRequestDto update(long userId, long requestId) {
         findUserById(userId);
         ParticipationRequest participationRequest = findParticipationRequestById(requestId);
         if (!participationRequest.getRequester().getId().equals(userId)) {
             throw new NotFoundException("Не найдено событий, доступных для редактирования.");
         }
+        if (participationRequest.getStatus().equals(ParticipationRequestState.CONFIRMED)) {
+            eventRepository.releaseConfirmedRequests(participationRequest.getEvent().getId(), 1);
+        }
         participationRequest.setStatus(ParticipationRequestState.CANCELED);
         return ParticipationRequestMapper.INSTANCE.toDto(participationRequestRepository.save(participationRequest));
     }
 
+    @Transactional(readOnly = true)
     public List<ParticipationRequestDto> getAll(long userId) {
         findUserById(userId);
 
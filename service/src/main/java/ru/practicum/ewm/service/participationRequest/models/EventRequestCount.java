@@ -0,0 +1,7 @@
+package ru.practicum.ewm.service.participationRequest.models;
+
+public interface EventRequestCount {
+    Long getEventId();
+
+    Long getRequestCount();
+}
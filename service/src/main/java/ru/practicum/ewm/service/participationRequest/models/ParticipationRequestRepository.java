@@ -5,7 +5,11 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
 
 @Repository
 public interface ParticipationRequestRepository extends JpaRepository<ParticipationRequest, Long> {
@@ -18,4 +22,18 @@ public interface ParticipationRequestRepository extends JpaRepository<Participat
     @Query("SELECT COUNT(pr) FROM ParticipationRequest pr WHERE pr.event.id = :eventId AND pr.status = :status")
     Long countByEventIdAndStatus(@Param("eventId") Long eventId,
                                  @Param("status") ParticipationRequestState status);
+
+    @Query("SELECT pr.event.id AS eventId, COUNT(pr) AS requestCount FROM ParticipationRequest pr " +
+            "WHERE pr.event.id IN :eventIds AND pr.status = :status " +
+            "GROUP BY pr.event.id")
+    List<EventRequestCount> countByEventIdInAndStatus(@Param("eventIds") Collection<Long> eventIds,
+                                                      @Param("status") ParticipationRequestState status);
+
+    default Map<Long, Long> countConfirmedByEventIds(Collection<Long> eventIds) {
+        if (eventIds.isEmpty()) {
+            return Collections.emptyMap();
+        }
+        return countByEventIdInAndStatus(eventIds, ParticipationRequestState.CONFIRMED).stream()
+                .collect(Collectors.toMap(EventRequestCount::getEventId, EventRequestCount::getRequestCount));
+    }
 }
@@ -43,11 +43,18 @@ create table if not exists events
     event_participant_limit     integer default 0,
     event_is_paid               boolean default false,
     event_is_request_moderation boolean default false,
+    event_confirmed_requests    bigint not null default 0,
     constraint fk_event_initiator foreign key (event_initiator_id) references users (user_id),
     constraint fk_event_category foreign key (event_category_id) references categories (category_id),
     constraint fk_event_location foreign key (event_location_id) references locations (location_id)
 );
 
+alter table events
+    add column if not exists event_confirmed_requests bigint not null default 0;
+
+create index if not exists ix_event_state_date
+    on events (event_state, event_date, event_id);
+
 create table if not exists participation_requests
 (
     participation_request_id           bigint generated by default as identity primary key,
@@ -60,6 +67,18 @@ create table if not exists participation_requests
     constraint uc_unique_requester_event unique (participation_request_requester_id, participation_request_event_id)
 );
 
+create index if not exists ix_participation_request_event_status
+    on participation_requests (participation_request_event_id, participation_request_status);
+
+update events e
+set event_confirmed_requests = c.confirmed
+from (select participation_request_event_id as event_id, count(*) as confirmed
+      from participation_requests
+      where participation_request_status = 'CONFIRMED'
+      group by participation_request_event_id) c
+where e.event_id = c.event_id
+  and e.event_confirmed_requests <> c.confirmed;
+
 create table if not exists compilations
 (
     compilation_id        bigint generated by default as identity primary key,
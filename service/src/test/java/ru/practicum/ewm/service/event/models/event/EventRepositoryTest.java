@@ -0,0 +1,129 @@
+package ru.practicum.ewm.service.event.models.event;
+
+import io.zonky.test.db.AutoConfigureEmbeddedDatabase;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import ru.practicum.ewm.service.category.models.Category;
+import ru.practicum.ewm.service.event.models.location.Location;
+import ru.practicum.ewm.service.user.models.User;
+import ru.practicum.ewm.service.util.OffsetPageRequest;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Boots the JPA layer against a real PostgreSQL, so every {@code @Query} in the repositories is parsed
+ * and a broken one fails the build instead of the service start.
+ */
+@DataJpaTest
+@AutoConfigureEmbeddedDatabase(provider = AutoConfigureEmbeddedDatabase.DatabaseProvider.ZONKY)
+class EventRepositoryTest {
+    private static final LocalDateTime NOW = LocalDateTime.of(2030, 1, 1, 12, 0);
+    private static final Sort BY_EVENT_DATE = Sort.by("eventDate", "id");
+
+    @Autowired
+    private EventRepository eventRepository;
+    @Autowired
+    private TestEntityManager entityManager;
+
+    private User initiator;
+    private Category category;
+    private Location location;
+
+    @BeforeEach
+    void setUp() {
+        initiator = new User();
+        initiator.setName("initiator");
+        initiator.setEmail("initiator@example.com");
+        entityManager.persist(initiator);
+        category = new Category();
+        category.setName("category");
+        entityManager.persist(category);
+        location = new Location();
+        location.setLat(55.75f);
+        location.setLon(37.62f);
+        entityManager.persist(location);
+    }
+
+    @Test
+    void findAllPublicOrdersByEventDateAndPagesByOffset() {
+        Event third = persistEvent(NOW.plusDays(3), 0);
+        Event first = persistEvent(NOW.plusDays(1), 0);
+        Event second = persistEvent(NOW.plusDays(2), 0);
+
+        List<Event> page = eventRepository.findAllPublic("", null, null, NOW, NOW.plusYears(1), false,
+                new OffsetPageRequest(1, 2, BY_EVENT_DATE));
+
+        assertThat(ids(page)).containsExactly(second.getId(), third.getId());
+        assertThat(ids(eventRepository.findAllPublic("", null, null, NOW, NOW.plusYears(1), false, Pageable.unpaged())))
+                .containsExactlyInAnyOrder(first.getId(), second.getId(), third.getId());
+    }
+
+    @Test
+    void findAllPublicAfterContinuesAfterCursor() {
+        LocalDateTime sameDate = NOW.plusDays(1);
+        Event first = persistEvent(sameDate, 0);
+        Event second = persistEvent(sameDate, 0);
+        Event third = persistEvent(NOW.plusDays(2), 0);
+
+        List<Event> page = eventRepository.findAllPublicAfter("", null, null, NOW, NOW.plusYears(1), false,
+                first.getEventDate(), first.getId(), PageRequest.of(0, 10, BY_EVENT_DATE));
+
+        assertThat(ids(page)).containsExactly(second.getId(), third.getId());
+    }
+
+    @Test
+    void onlyAvailableSkipsFullEvents() {
+        Event full = persistEvent(NOW.plusDays(1), 1);
+        Event open = persistEvent(NOW.plusDays(2), 2);
+        Event unlimited = persistEvent(NOW.plusDays(3), 0);
+        assertThat(eventRepository.reserveConfirmedRequests(full.getId(), 1)).isEqualTo(1);
+        assertThat(eventRepository.reserveConfirmedRequests(full.getId(), 1)).isZero();
+        entityManager.clear();
+
+        List<Event> page = eventRepository.findAllPublic("", null, null, NOW, NOW.plusYears(1), true,
+                PageRequest.of(0, 10, BY_EVENT_DATE));
+
+        assertThat(ids(page)).containsExactly(open.getId(), unlimited.getId());
+    }
+
+    @Test
+    void findAllByAdminParses() {
+        persistEvent(NOW.plusDays(1), 0);
+
+        assertThat(eventRepository.findAllByAdmin(null, null, null, NOW, NOW.plusYears(1), PageRequest.of(0, 10)))
+                .hasSize(1);
+    }
+
+    private Event persistEvent(LocalDateTime eventDate, int participantLimit) {
+        Event event = new Event();
+        event.setInitiator(initiator);
+        event.setCategory(category);
+        event.setLocation(location);
+        event.setTitle("title");
+        event.setAnnotation("annotation");
+        event.setDescription("description");
+        event.setState(EventState.PUBLISHED);
+        event.setEventDate(eventDate);
+        event.setCreatedOn(NOW);
+        event.setParticipantLimit(participantLimit);
+        event.setPaid(false);
+        event.setRequestModeration(false);
+        return entityManager.persistAndFlush(event);
+    }
+
+    private static List<Long> ids(List<Event> events) {
+        return events.stream()
+                .map(Event::getId)
+                .collect(Collectors.toList());
+    }
+}
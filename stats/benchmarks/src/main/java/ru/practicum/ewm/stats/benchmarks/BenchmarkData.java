@@ -0,0 +1,42 @@
+package ru.practicum.ewm.stats.benchmarks;
+
+import ru.practicum.ewm.stats.dto.EndpointHitDto;
+import ru.practicum.ewm.stats.dto.ViewStatsDto;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+final class BenchmarkData {
+    static final LocalDateTime START = LocalDateTime.of(2024, 1, 1, 0, 0);
+
+    private BenchmarkData() {
+    }
+
+    static List<EndpointHitDto> hitDtos(int count, int uris, long seed) {
+        Random random = new Random(seed);
+        List<EndpointHitDto> hits = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            hits.add(EndpointHitDto.builder()
+                    .app("ewm-main-service")
+                    .uri("/events/" + zipf(random, uris))
+                    .ip("192.168." + random.nextInt(256) + "." + random.nextInt(256))
+                    .hitTimestamp(START.plusSeconds(random.nextInt(86400)))
+                    .build());
+        }
+        return hits;
+    }
+
+    static List<ViewStatsDto> viewStats(int count) {
+        List<ViewStatsDto> stats = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            stats.add(new ViewStatsDto("ewm-main-service", "/events/" + i, (long) (count - i) * 17));
+        }
+        return stats;
+    }
+
+    static int zipf(Random random, int size) {
+        return (int) Math.min(size - 1, Math.floor(Math.pow(size + 1, random.nextDouble()) - 1));
+    }
+}
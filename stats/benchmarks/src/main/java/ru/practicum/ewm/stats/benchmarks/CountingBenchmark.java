@@ -0,0 +1,104 @@
+package ru.practicum.ewm.stats.benchmarks;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.practicum.ewm.stats.server.data.EndpointHit;
+import ru.practicum.ewm.stats.server.data.EndpointHitMapper;
+import ru.practicum.ewm.stats.server.logic.HitDeduplicator;
+import ru.practicum.ewm.stats.server.logic.HotWindowCounters;
+import ru.practicum.ewm.stats.server.logic.ViewStatsAccumulator;
+import ru.practicum.ewm.stats.server.util.HitKeys;
+import ru.practicum.ewm.stats.server.util.SpaceSaving;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * In-memory counting structures on the ingest and query paths, fed a batch of hits over
+ * Zipf-distributed uris. Each operation processes the whole batch.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CountingBenchmark {
+    private static final int BATCH_SIZE = 1000;
+
+    @Param({"1000", "100000"})
+    private int uris;
+
+    private List<EndpointHit> hits;
+    private long[] keys;
+    private SpaceSaving summary;
+    private HotWindowCounters hotWindowCounters;
+    private HitDeduplicator hitDeduplicator;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        hits = EndpointHitMapper.INSTANCE.fromDtos(BenchmarkData.hitDtos(BATCH_SIZE, uris, 42));
+        keys = new long[hits.size()];
+        Random random = new Random(7);
+        LocalDateTime now = LocalDateTime.now();
+        for (int i = 0; i < hits.size(); i++) {
+            EndpointHit hit = hits.get(i);
+            hit.setAppId(1);
+            hit.setUriId(Integer.parseInt(hit.getUri().substring("/events/".length())));
+            hit.setHitTimestamp(now.minusSeconds(random.nextInt(600)));
+            keys[i] = HitKeys.toKey(hit.getAppId(), hit.getUriId());
+        }
+        summary = new SpaceSaving(1000);
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        hotWindowCounters = new HotWindowCounters(meterRegistry, true, 1440, uris);
+        hitDeduplicator = new HitDeduplicator(meterRegistry, true, 10, 1_000_000, 0.001);
+    }
+
+    @Benchmark
+    public SpaceSaving spaceSavingAdd() {
+        for (long key : keys) {
+            summary.add(key, 1);
+        }
+        return summary;
+    }
+
+    @Benchmark
+    public ViewStatsAccumulator accumulatorAdd() {
+        ViewStatsAccumulator accumulator = new ViewStatsAccumulator();
+        for (EndpointHit hit : hits) {
+            accumulator.add(hit.getAppId(), hit.getUriId(), 1);
+        }
+        return accumulator;
+    }
+
+    @Benchmark
+    public HotWindowCounters hotWindowRecord() {
+        hotWindowCounters.record(hits);
+        return hotWindowCounters;
+    }
+
+    @Benchmark
+    public int dedupCheck() {
+        int duplicates = 0;
+        for (EndpointHit hit : hits) {
+            if (hitDeduplicator.isDuplicate(hit)) {
+                duplicates++;
+            }
+        }
+        hitDeduplicator.markSeen(hits);
+        return duplicates;
+    }
+}
@@ -0,0 +1,91 @@
+package ru.practicum.ewm.stats.benchmarks;
+
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import ru.practicum.ewm.stats.StatsServerApp;
+import ru.practicum.ewm.stats.dto.EndpointHitDto;
+import ru.practicum.ewm.stats.dto.ViewStatsDto;
+import ru.practicum.ewm.stats.server.logic.StatsService;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * StatsService.getStats against an embedded PostgreSQL seeded with a day of hits. The result cache
+ * and the in-memory hot window are disabled so every call aggregates in the database.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class GetStatsBenchmark {
+    private static final int SEED_BATCH_SIZE = 5000;
+
+    @Param({"100000"})
+    private int hits;
+
+    @Param({"false", "true"})
+    private boolean unique;
+
+    @Param({"all", "10"})
+    private String uris;
+
+    private EmbeddedPostgres postgres;
+    private ConfigurableApplicationContext context;
+    private StatsService statsService;
+    private List<String> queryUris;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        postgres = EmbeddedPostgres.builder().start();
+        context = new SpringApplicationBuilder(StatsServerApp.class)
+                .web(WebApplicationType.NONE)
+                .properties("spring.datasource.url=" + postgres.getJdbcUrl("postgres", "postgres"),
+                        "spring.datasource.username=postgres",
+                        "spring.datasource.password=postgres",
+                        "stats.ingest.async=false",
+                        "stats.cache.enabled=false",
+                        "stats.hot-window.enabled=false",
+                        "logging.level.root=WARN")
+                .run();
+        statsService = context.getBean(StatsService.class);
+        List<EndpointHitDto> seed = BenchmarkData.hitDtos(hits, 1000, 42);
+        for (int from = 0; from < seed.size(); from += SEED_BATCH_SIZE) {
+            statsService.createEndpointHits(seed.subList(from, Math.min(seed.size(), from + SEED_BATCH_SIZE)));
+        }
+        queryUris = "all".equals(uris) ? null : IntStream.range(0, Integer.parseInt(uris))
+                .mapToObj(i -> "/events/" + i)
+                .collect(Collectors.toList());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        context.close();
+        postgres.close();
+    }
+
+    @Benchmark
+    public List<ViewStatsDto> getStats() {
+        return statsService.getStats(BenchmarkData.START, BenchmarkData.START.plusDays(1), queryUris, unique, false);
+    }
+}
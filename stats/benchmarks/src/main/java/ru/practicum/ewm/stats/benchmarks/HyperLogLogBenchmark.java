@@ -0,0 +1,94 @@
+package ru.practicum.ewm.stats.benchmarks;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.practicum.ewm.stats.server.util.HyperLogLog;
+import ru.practicum.ewm.stats.server.util.IpAddresses;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HyperLogLogBenchmark {
+    private static final int HOURS = 24;
+
+    @Param({"1000", "100000", "1000000"})
+    private int hits;
+
+    @Param({"0.3"})
+    private double repeatShare;
+
+    private List<List<String>> ipsByHour;
+    private List<HyperLogLog> sketchesByHour;
+    private long exactVisitors;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Random random = new Random(42);
+        int distinctVisitors = Math.max(1, (int) (hits * (1 - repeatShare)));
+        ipsByHour = new ArrayList<>();
+        sketchesByHour = new ArrayList<>();
+        for (int hour = 0; hour < HOURS; hour++) {
+            ipsByHour.add(new ArrayList<>());
+            sketchesByHour.add(new HyperLogLog());
+        }
+        for (int i = 0; i < hits; i++) {
+            int visitor = random.nextInt(distinctVisitors);
+            String ip = "10." + (visitor >>> 16 & 255) + "." + (visitor >>> 8 & 255) + "." + (visitor & 255);
+            int hour = random.nextInt(HOURS);
+            ipsByHour.get(hour).add(ip);
+            sketchesByHour.get(hour).add(IpAddresses.toBytes(ip));
+        }
+        exactVisitors = exactDistinct();
+    }
+
+    @Benchmark
+    public long exactDistinct() {
+        Set<String> visitors = new HashSet<>();
+        for (List<String> ips : ipsByHour) {
+            visitors.addAll(ips);
+        }
+        return visitors.size();
+    }
+
+    @Benchmark
+    public long approximateDistinct(Accuracy accuracy) {
+        HyperLogLog merged = new HyperLogLog();
+        for (HyperLogLog sketch : sketchesByHour) {
+            merged.merge(sketch);
+        }
+        long estimate = merged.estimate();
+        accuracy.errorPercent = 100.0 * Math.abs(estimate - exactVisitors) / exactVisitors;
+        return estimate;
+    }
+
+    /**
+     * Reported next to the timing of {@link #approximateDistinct} as the relative error of the merged
+     * estimate against the exact distinct count, in percent.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Accuracy {
+        public double errorPercent;
+    }
+}
@@ -0,0 +1,63 @@
+package ru.practicum.ewm.stats.benchmarks;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import ru.practicum.ewm.stats.dto.EndpointHitDto;
+import ru.practicum.ewm.stats.dto.ViewStatsDto;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JacksonBenchmark {
+    @Param({"10", "1000"})
+    private int statsRows;
+
+    private ObjectWriter hitWriter;
+    private ObjectReader hitReader;
+    private ObjectWriter statsWriter;
+    private ObjectReader statsReader;
+    private EndpointHitDto hit;
+    private List<ViewStatsDto> stats;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        ObjectMapper mapper = Jackson2ObjectMapperBuilder.json().build();
+        hitWriter = mapper.writerFor(EndpointHitDto.class);
+        hitReader = mapper.readerFor(EndpointHitDto.class);
+        statsWriter = mapper.writerFor(mapper.getTypeFactory().constructCollectionType(List.class, ViewStatsDto.class));
+        statsReader = mapper.readerForListOf(ViewStatsDto.class);
+        hit = BenchmarkData.hitDtos(1, 1000, 42).get(0);
+        stats = BenchmarkData.viewStats(statsRows);
+    }
+
+    @Benchmark
+    public EndpointHitDto endpointHitRoundTrip() throws IOException {
+        return hitReader.readValue(hitWriter.writeValueAsBytes(hit));
+    }
+
+    @Benchmark
+    public List<ViewStatsDto> viewStatsRoundTrip() throws IOException {
+        return statsReader.readValue(statsWriter.writeValueAsBytes(stats));
+    }
+}
@@ -0,0 +1,55 @@
+package ru.practicum.ewm.stats.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.practicum.ewm.stats.dto.EndpointHitDto;
+import ru.practicum.ewm.stats.server.data.EndpointHit;
+import ru.practicum.ewm.stats.server.data.EndpointHitMapper;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MapperBenchmark {
+    @Param({"1", "500"})
+    private int batchSize;
+
+    private List<EndpointHitDto> dtos;
+    private EndpointHit hit;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        dtos = BenchmarkData.hitDtos(batchSize, 1000, 42);
+        hit = EndpointHitMapper.INSTANCE.fromDto(dtos.get(0));
+    }
+
+    @Benchmark
+    public EndpointHit fromDto() {
+        return EndpointHitMapper.INSTANCE.fromDto(dtos.get(0));
+    }
+
+    @Benchmark
+    public List<EndpointHit> fromDtos() {
+        return EndpointHitMapper.INSTANCE.fromDtos(dtos);
+    }
+
+    @Benchmark
+    public EndpointHitDto toDto() {
+        return EndpointHitMapper.INSTANCE.toDto(hit);
+    }
+}
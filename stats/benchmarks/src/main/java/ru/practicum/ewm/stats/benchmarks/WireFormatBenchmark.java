@@ -0,0 +1,89 @@
+package ru.practicum.ewm.stats.benchmarks;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.practicum.ewm.stats.dto.EndpointHitDto;
+import ru.practicum.ewm.stats.dto.StatsCbor;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class WireFormatBenchmark {
+    @Param({"json", "cbor"})
+    private String format;
+
+    @Param({"1", "500"})
+    private int batchSize;
+
+    private List<EndpointHitDto> batch;
+    private ObjectWriter writer;
+    private ObjectReader reader;
+    private byte[] encoded;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        ObjectMapper mapper = "cbor".equals(format) ?
+                StatsCbor.createMapper() :
+                new ObjectMapper().registerModule(new JavaTimeModule());
+        writer = mapper.writerFor(mapper.getTypeFactory().constructCollectionType(List.class, EndpointHitDto.class));
+        reader = mapper.readerForListOf(EndpointHitDto.class);
+        Random random = new Random(42);
+        LocalDateTime start = LocalDateTime.of(2024, 1, 1, 0, 0);
+        batch = new ArrayList<>(batchSize);
+        for (int i = 0; i < batchSize; i++) {
+            batch.add(EndpointHitDto.builder()
+                    .app("ewm-main-service")
+                    .uri("/events/" + random.nextInt(10000))
+                    .ip("192.168." + random.nextInt(256) + "." + random.nextInt(256))
+                    .hitTimestamp(start.plusSeconds(random.nextInt(86400)))
+                    .build());
+        }
+        encoded = writer.writeValueAsBytes(batch);
+    }
+
+    @Benchmark
+    public byte[] write(EncodedSize encodedSize) throws IOException {
+        byte[] bytes = writer.writeValueAsBytes(batch);
+        encodedSize.bytesPerHit = (double) bytes.length / batchSize;
+        return bytes;
+    }
+
+    @Benchmark
+    public List<EndpointHitDto> read() throws IOException {
+        return reader.readValue(encoded);
+    }
+
+    /**
+     * Reported next to the timing of {@link #write} as the encoded size of the batch per hit.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class EncodedSize {
+        public double bytesPerHit;
+    }
+}
@@ -0,0 +1,71 @@
+package ru.practicum.ewm.stats.client;
+
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.util.concurrent.Queues;
+import ru.practicum.ewm.stats.dto.EndpointHitDto;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Groups hits into batches of up to {@code batchSize}, sent at most {@code linger} after the first hit of
+ * a batch. Hits wait in a bounded queue of about {@code queueCapacity}; when the server falls behind and
+ * the queue is full, new hits are dropped and counted instead of growing the heap.
+ */
+@Slf4j
+class HitBatcher {
+    private final Sinks.Many<EndpointHitDto> sink;
+    private final CompletableFuture<Void> completion;
+    private final Duration closeTimeout;
+    private final AtomicLong droppedHits = new AtomicLong();
+
+    HitBatcher(int batchSize, Duration linger, int queueCapacity, Duration closeTimeout,
+               Function<List<EndpointHitDto>, Mono<Void>> sender) {
+        this.closeTimeout = closeTimeout;
+        this.sink = Sinks.many().unicast().onBackpressureBuffer(Queues.<EndpointHitDto>get(queueCapacity).get());
+        this.completion = sink.asFlux()
+                .bufferTimeout(batchSize, linger)
+                .concatMap(batch -> sender.apply(batch)
+                        .onErrorResume(e -> {
+                            log.warn("Failed to send a batch of {} hits: {}", batch.size(), e.getMessage());
+                            droppedHits.addAndGet(batch.size());
+                            return Mono.empty();
+                        }))
+                .then()
+                .toFuture();
+    }
+
+    synchronized void add(EndpointHitDto endpointHitDto) {
+        Sinks.EmitResult result = sink.tryEmitNext(endpointHitDto);
+        if (result.isFailure()) {
+            if (droppedHits.getAndIncrement() == 0 || result != Sinks.EmitResult.FAIL_OVERFLOW) {
+                log.warn("Hit was not queued for sending: {}", result);
+            }
+        }
+    }
+
+    long getDroppedHits() {
+        return droppedHits.get();
+    }
+
+    void close() {
+        synchronized (this) {
+            sink.tryEmitComplete();
+        }
+        try {
+            completion.get(closeTimeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException | TimeoutException e) {
+            log.warn("Pending hits were not sent before close: {}", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,350 @@
+package ru.practicum.ewm.stats.client;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Mono;
+import ru.practicum.ewm.stats.dto.EndpointHitDto;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+
+/**
+ * Write-ahead spool of hits in a memory-mapped file. Hits are appended as length-prefixed records
+ * and a background thread sends them in batches, retrying with exponential backoff until the server
+ * accepts them. Read and write offsets live in one header word, so the spool replays exactly the
+ * unsent hits after a restart. When the file is full, new hits are dropped and counted; hits already
+ * spooled are only discarded when the server rejects them as invalid.
+ */
+@Slf4j
+class HitSpool {
+    private static final int MAGIC = 0x45574d53;
+    private static final int MAGIC_OFFSET = 0;
+    private static final int OFFSETS_OFFSET = 4;
+    private static final int HEADER_SIZE = 12;
+    private static final int MIN_CAPACITY = 4096;
+
+    private final MappedByteBuffer buffer;
+    private final int capacity;
+    private final int batchSize;
+    private final Duration initialBackoff;
+    private final Duration maxBackoff;
+    private final Duration sendTimeout;
+    private final Duration closeTimeout;
+    private final Function<List<EndpointHitDto>, Mono<Void>> sender;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+    private final AtomicLong droppedHits = new AtomicLong();
+    private final Thread senderThread;
+    private int readOffset;
+    private int writeOffset;
+    private long pendingHits;
+    private volatile boolean running = true;
+
+    HitSpool(Path path, long capacityBytes, int batchSize, Duration initialBackoff, Duration maxBackoff,
+             Duration sendTimeout, Duration closeTimeout, Function<List<EndpointHitDto>, Mono<Void>> sender) {
+        if (capacityBytes < MIN_CAPACITY || capacityBytes > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Spool capacity must be between " + MIN_CAPACITY + " and " +
+                    Integer.MAX_VALUE + " bytes");
+        }
+        this.batchSize = batchSize;
+        this.initialBackoff = initialBackoff;
+        this.maxBackoff = maxBackoff;
+        this.sendTimeout = sendTimeout;
+        this.closeTimeout = closeTimeout;
+        this.sender = sender;
+        try {
+            if (path.getParent() != null) {
+                Files.createDirectories(path.getParent());
+            }
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                    StandardOpenOption.WRITE)) {
+                boolean existing = channel.size() >= HEADER_SIZE;
+                this.capacity = (int) Math.min(Integer.MAX_VALUE, Math.max(capacityBytes, channel.size()));
+                this.buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+                if (existing && buffer.getInt(MAGIC_OFFSET) == MAGIC) {
+                    recover(path);
+                } else {
+                    buffer.putInt(MAGIC_OFFSET, MAGIC);
+                    readOffset = HEADER_SIZE;
+                    writeOffset = HEADER_SIZE;
+                    writeHeader();
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to open hit spool " + path, e);
+        }
+        this.senderThread = new Thread(this::runSender, "stats-client-spool-sender");
+        this.senderThread.setDaemon(true);
+        this.senderThread.start();
+    }
+
+    void add(EndpointHitDto endpointHitDto) {
+        byte[] record = encode(endpointHitDto);
+        int size = Integer.BYTES + record.length;
+        lock.lock();
+        try {
+            if (!running || !ensureSpace(size)) {
+                if (droppedHits.incrementAndGet() % 1000 == 1) {
+                    log.warn("Hit spool is full or closed, {} hits dropped so far", droppedHits.get());
+                }
+                return;
+            }
+            buffer.putInt(writeOffset, record.length);
+            ByteBuffer target = buffer.duplicate();
+            target.position(writeOffset + Integer.BYTES);
+            target.put(record);
+            writeOffset += size;
+            writeHeader();
+            pendingHits++;
+            notEmpty.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    long getPendingHits() {
+        lock.lock();
+        try {
+            return pendingHits;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    long getDroppedHits() {
+        return droppedHits.get();
+    }
+
+    Duration getLag() {
+        LocalDateTime oldest;
+        lock.lock();
+        try {
+            if (pendingHits == 0) {
+                return Duration.ZERO;
+            }
+            oldest = LocalDateTime.ofEpochSecond(buffer.getLong(readOffset + Integer.BYTES), 0, ZoneOffset.UTC);
+        } finally {
+            lock.unlock();
+        }
+        Duration lag = Duration.between(oldest, LocalDateTime.now());
+        return lag.isNegative() ? Duration.ZERO : lag;
+    }
+
+    void close() {
+        lock.lock();
+        try {
+            running = false;
+            notEmpty.signal();
+        } finally {
+            lock.unlock();
+        }
+        try {
+            senderThread.join(closeTimeout.toMillis());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (senderThread.isAlive()) {
+            senderThread.interrupt();
+        }
+        long pending = getPendingHits();
+        if (pending > 0) {
+            log.info("{} hits left in spool, they will be sent after restart", pending);
+        }
+        buffer.force();
+    }
+
+    private void runSender() {
+        Duration backoff = initialBackoff;
+        while (true) {
+            List<EndpointHitDto> batch = new ArrayList<>(batchSize);
+            int batchBytes;
+            lock.lock();
+            try {
+                while (running && pendingHits == 0) {
+                    notEmpty.await();
+                }
+                if (pendingHits == 0) {
+                    return;
+                }
+                batchBytes = readBatch(batch);
+            } catch (InterruptedException e) {
+                return;
+            } finally {
+                lock.unlock();
+            }
+            try {
+                sender.apply(batch).block(sendTimeout);
+                commit(batch.size(), batchBytes);
+                backoff = initialBackoff;
+            } catch (WebClientResponseException e) {
+                if (!isRetryable(e.getStatusCode())) {
+                    log.warn("Stats server rejected {} spooled hits with {}, dropping them", batch.size(), e.getStatusCode());
+                    droppedHits.addAndGet(batch.size());
+                    commit(batch.size(), batchBytes);
+                    continue;
+                }
+                if (!sleep(batch.size(), backoff, e)) {
+                    return;
+                }
+                backoff = nextBackoff(backoff);
+            } catch (RuntimeException e) {
+                if (!sleep(batch.size(), backoff, e)) {
+                    return;
+                }
+                backoff = nextBackoff(backoff);
+            }
+        }
+    }
+
+    private boolean sleep(int hits, Duration backoff, RuntimeException cause) {
+        log.warn("Failed to send {} spooled hits, retrying in {} ms: {}", hits, backoff.toMillis(), cause.getMessage());
+        try {
+            TimeUnit.MILLISECONDS.sleep(backoff.toMillis());
+            return true;
+        } catch (InterruptedException e) {
+            return false;
+        }
+    }
+
+    private Duration nextBackoff(Duration backoff) {
+        Duration next = backoff.multipliedBy(2);
+        return next.compareTo(maxBackoff) > 0 ? maxBackoff : next;
+    }
+
+    private static boolean isRetryable(HttpStatus status) {
+        return !status.is4xxClientError() || status == HttpStatus.TOO_MANY_REQUESTS || status == HttpStatus.REQUEST_TIMEOUT;
+    }
+
+    private int readBatch(List<EndpointHitDto> batch) {
+        int offset = readOffset;
+        while (offset < writeOffset && batch.size() < batchSize) {
+            int length = buffer.getInt(offset);
+            batch.add(decode(offset + Integer.BYTES));
+            offset += Integer.BYTES + length;
+        }
+        return offset - readOffset;
+    }
+
+    private void commit(int hits, int bytes) {
+        lock.lock();
+        try {
+            readOffset += bytes;
+            pendingHits -= hits;
+            if (readOffset == writeOffset) {
+                readOffset = HEADER_SIZE;
+                writeOffset = HEADER_SIZE;
+            }
+            writeHeader();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private boolean ensureSpace(int size) {
+        if (writeOffset + size <= capacity) {
+            return true;
+        }
+        int unread = writeOffset - readOffset;
+        if (readOffset - HEADER_SIZE < unread || HEADER_SIZE + unread + size > capacity) {
+            return false;
+        }
+        byte[] pending = new byte[unread];
+        ByteBuffer source = buffer.duplicate();
+        source.position(readOffset);
+        source.get(pending);
+        ByteBuffer target = buffer.duplicate();
+        target.position(HEADER_SIZE);
+        target.put(pending);
+        readOffset = HEADER_SIZE;
+        writeOffset = HEADER_SIZE + unread;
+        writeHeader();
+        return true;
+    }
+
+    private void recover(Path path) {
+        long offsets = buffer.getLong(OFFSETS_OFFSET);
+        readOffset = (int) (offsets >>> 32);
+        writeOffset = (int) offsets;
+        if (readOffset < HEADER_SIZE || writeOffset < readOffset || writeOffset > capacity) {
+            log.warn("Hit spool {} has an invalid header, discarding its contents", path);
+            readOffset = HEADER_SIZE;
+            writeOffset = HEADER_SIZE;
+            writeHeader();
+            return;
+        }
+        int offset = readOffset;
+        while (offset < writeOffset) {
+            int length = buffer.getInt(offset);
+            if (length <= 0 || offset + Integer.BYTES + length > writeOffset) {
+                log.warn("Hit spool {} ends with a damaged record, truncating at offset {}", path, offset);
+                writeOffset = offset;
+                writeHeader();
+                break;
+            }
+            offset += Integer.BYTES + length;
+            pendingHits++;
+        }
+        log.info("Replaying {} spooled hits from {}", pendingHits, path);
+    }
+
+    private void writeHeader() {
+        buffer.putLong(OFFSETS_OFFSET, (long) readOffset << 32 | writeOffset & 0xffffffffL);
+    }
+
+    private static byte[] encode(EndpointHitDto endpointHitDto) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+        try (DataOutputStream output = new DataOutputStream(bytes)) {
+            output.writeLong(endpointHitDto.getHitTimestamp().toEpochSecond(ZoneOffset.UTC));
+            writeString(output, endpointHitDto.getApp());
+            writeString(output, endpointHitDto.getUri());
+            writeString(output, endpointHitDto.getIp());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    private EndpointHitDto decode(int offset) {
+        ByteBuffer record = buffer.duplicate();
+        record.position(offset);
+        LocalDateTime hitTimestamp = LocalDateTime.ofEpochSecond(record.getLong(), 0, ZoneOffset.UTC);
+        return EndpointHitDto.builder()
+                .app(readString(record))
+                .uri(readString(record))
+                .ip(readString(record))
+                .hitTimestamp(hitTimestamp)
+                .build();
+    }
+
+    private static void writeString(DataOutputStream output, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        output.writeInt(bytes.length);
+        output.write(bytes);
+    }
+
+    private static String readString(ByteBuffer record) {
+        byte[] bytes = new byte[record.getInt()];
+        record.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,43 @@
+package ru.practicum.ewm.stats.client;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Consistent-hash ring over stats nodes. Each node owns many virtual points placed by hashing its
+ * url, so adding or removing a node only moves the uris of the ring segments it gains or loses.
+ */
+class ShardRing<T> {
+    private static final int VIRTUAL_NODES = 160;
+
+    private final TreeMap<Long, T> ring = new TreeMap<>();
+
+    ShardRing(List<String> keys, List<T> nodes) {
+        for (int i = 0; i < nodes.size(); i++) {
+            for (int point = 0; point < VIRTUAL_NODES; point++) {
+                ring.put(hash(keys.get(i) + "#" + point), nodes.get(i));
+            }
+        }
+    }
+
+    T nodeFor(String key) {
+        Map.Entry<Long, T> entry = ring.ceilingEntry(hash(key));
+        return entry != null ? entry.getValue() : ring.firstEntry().getValue();
+    }
+
+    private static long hash(String key) {
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : key.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b & 0xff;
+            hash *= 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
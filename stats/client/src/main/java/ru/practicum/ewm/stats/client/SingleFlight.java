@@ -0,0 +1,84 @@
+package ru.practicum.ewm.stats.client;
+
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.NoSuchElementException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * Coalesces concurrent calls with equal keys into one: the first subscriber starts the call and every
+ * subscriber arriving before it completes shares its result. The shared call fails after
+ * {@code timeout}, so a hung request cannot block its key. A successful result is kept for {@code ttl}
+ * afterwards; a failure or an empty call is never reused. A subscriber that cancels does not cancel
+ * the call for the others.
+ * <p>
+ * {@link #executeAfter} only joins a call sent at or after a given {@link System#nanoTime()}, so a caller
+ * that must see its own earlier write never gets an older result. Such a call waits {@code linger}
+ * before it is sent, letting callers whose writes complete meanwhile join it.
+ */
+class SingleFlight<K, V> {
+    private final ConcurrentHashMap<K, Flight<V>> calls = new ConcurrentHashMap<>();
+    private final Duration timeout;
+    private final Duration ttl;
+
+    SingleFlight(Duration timeout, Duration ttl) {
+        this.timeout = timeout;
+        this.ttl = ttl;
+    }
+
+    Mono<V> execute(K key, Supplier<Mono<V>> call) {
+        return execute(key, flight -> true, Duration.ZERO, call);
+    }
+
+    Mono<V> executeAfter(K key, long notBefore, Duration linger, Supplier<Mono<V>> call) {
+        return execute(key, flight -> flight.isSentAfter(notBefore), linger, call);
+    }
+
+    private Mono<V> execute(K key, Predicate<Flight<V>> joinable, Duration linger, Supplier<Mono<V>> call) {
+        return Mono.defer(() -> {
+            Flight<V> created = new Flight<>();
+            Flight<V> flight = calls.compute(key, (k, current) -> current != null && joinable.test(current) ? current : created);
+            if (flight == created) {
+                created.result.whenComplete((value, error) -> expire(key, created, error == null));
+                Mono<V> send = Mono.defer(() -> {
+                    created.markSent();
+                    return call.get();
+                });
+                (linger.isZero() ? send : Mono.delay(linger).then(send))
+                        .timeout(timeout)
+                        .subscribe(created.result::complete, created.result::completeExceptionally, () -> created.result.completeExceptionally(
+                                new NoSuchElementException("Call " + key + " completed without a value")));
+            }
+            return Mono.fromCompletionStage(flight.result.minimalCompletionStage());
+        });
+    }
+
+    private void expire(K key, Flight<V> flight, boolean succeeded) {
+        if (!succeeded || ttl.isZero()) {
+            calls.remove(key, flight);
+            return;
+        }
+        CompletableFuture.delayedExecutor(ttl.toMillis(), TimeUnit.MILLISECONDS)
+                .execute(() -> calls.remove(key, flight));
+    }
+
+    private static class Flight<V> {
+        private final CompletableFuture<V> result = new CompletableFuture<>();
+        private volatile long sentAt;
+        private volatile boolean sent;
+
+        void markSent() {
+            sentAt = System.nanoTime();
+            sent = true;
+        }
+
+        boolean isSentAfter(long notBefore) {
+            return !sent || sentAt - notBefore >= 0;
+        }
+    }
+}
@@ -1,37 +1,280 @@
 package ru.practicum.ewm.stats.client;
 
-import org.springframework.http.MediaType;
-import org.springframework.web.reactive.function.BodyInserters;
-import org.springframework.web.reactive.function.client.WebClient;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 import ru.practicum.ewm.stats.dto.EndpointHitDto;
 import ru.practicum.ewm.stats.dto.ViewStatsDto;
 
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Collectors;
 
-public class StatsClient {
-    private final WebClient webClient;
+/**
+ * Client for one stats server or a cluster of them. {@code serverUrl} may list several nodes separated
+ * by commas; hits are then routed to the node owning their uri on a consistent-hash ring, and stats
+ * queries are scattered to the owning nodes and merged into one list ordered by hits. Long uri lists
+ * are split into chunks of {@code uriChunkSize}, at most {@code queryConcurrency} of them in flight.
+ * <p>
+ * Unique counts are computed per app and uri, and every hit on a uri goes to one node, so each unique
+ * count comes from a single node and is exact while the node list stays the same. Changing the node
+ * list moves uris to new owners without moving their stored hits: queries for specific uris then only
+ * see hits written since the move, and a query over all uris sums one uri's rows from the old and new
+ * node, which is right for plain counts but overcounts unique ones by the ips seen on both nodes.
+ * <p>
+ * The {@code Async} and {@code Future} methods never block the calling thread, so a caller can start a
+ * stats query, do its own database work and only then wait for the result. {@link #createEndpointHit}
+ * is fire-and-forget: the hit is sent on the HTTP client's event loop and a failure is only logged.
+ * Identical concurrent stats queries share one request, and with {@code queryCacheTtl} set its result
+ * is reused for that long after it arrives. With {@code viewsCacheMaxSize} set, the {@code getViews}
+ * methods answer queries for specific uris from a per-uri cache that serves stale rows while refreshing
+ * them in the background. The cache is keyed by the exact range, so it only pays off for ranges that
+ * repeat across calls; a range starting at the current time never hits and should use {@code getStats}.
+ */
+@Slf4j
+public class StatsClient implements AutoCloseable {
+    private final List<StatsNode> nodes;
+    private final ShardRing<StatsNode> ring;
+    private final Duration queryTimeout;
+    private final Duration hitTimeout;
+    private final int uriChunkSize;
+    private final int queryConcurrency;
+    private final Duration afterHitQueryLinger;
+    private final SingleFlight<List<Object>, List<ViewStatsDto>> statsQueries;
+    private final ViewsCache viewsCache;
 
     public StatsClient(String serverUrl) {
-        webClient = WebClient.builder().baseUrl(serverUrl).build();
+        this(StatsClientOptions.builder().serverUrl(serverUrl).build());
+    }
+
+    public StatsClient(StatsClientOptions options) {
+        List<String> serverUrls = Arrays.stream(options.getServerUrl().split(","))
+                .map(String::trim)
+                .filter(url -> !url.isEmpty())
+                .collect(Collectors.toList());
+        if (serverUrls.isEmpty()) {
+            throw new IllegalArgumentException("No stats server url configured");
+        }
+        nodes = new ArrayList<>(serverUrls.size());
+        for (int i = 0; i < serverUrls.size(); i++) {
+            nodes.add(new StatsNode(serverUrls.get(i), options, spoolPath(options.getSpoolPath(), i, serverUrls.size())));
+        }
+        ring = new ShardRing<>(serverUrls, nodes);
+        queryTimeout = options.getQueryTimeout();
+        hitTimeout = options.getHitTimeout();
+        uriChunkSize = options.getUriChunkSize();
+        queryConcurrency = options.getQueryConcurrency();
+        afterHitQueryLinger = options.getAfterHitQueryLinger();
+        statsQueries = options.isCoalesceQueries() ? new SingleFlight<>(options.getQueryTimeout(), options.getQueryCacheTtl()) : null;
+        viewsCache = options.getViewsCacheMaxSize() > 0 ?
+                new ViewsCache(options.getViewsCacheMaxSize(), options.getViewsCacheTtl(), options.getViewsCacheMaxStaleness(),
+                        (start, end, uris, unique) -> fetchStats(start, end, uris, unique).timeout(queryTimeout)) :
+                null;
     }
 
     public List<ViewStatsDto> getStats(String start, String end, List<String> uris, Boolean unique) {
-        String urisAsString = String.join(",", uris);
-        return webClient.get()
-                .uri("/stats?start={start}&end={end}&uris={uris}&unique={unique}", start, end, urisAsString, unique)
-                .retrieve()
-                .bodyToFlux(ViewStatsDto.class)
-                .collectList()
-                .block();
+        return getStatsAsync(start, end, uris, unique).block();
+    }
+
+    public CompletableFuture<List<ViewStatsDto>> getStatsFuture(String start, String end, List<String> uris, Boolean unique) {
+        return getStatsAsync(start, end, uris, unique).toFuture();
+    }
+
+    public Mono<List<ViewStatsDto>> getStatsAsync(String start, String end, List<String> uris, Boolean unique) {
+        return fetchStats(start, end, uris, unique).timeout(queryTimeout);
+    }
+
+    public CompletableFuture<List<ViewStatsDto>> getViewsFuture(String start, String end, List<String> uris, Boolean unique) {
+        return getViewsAsync(start, end, uris, unique).toFuture();
+    }
+
+    /**
+     * Same as {@link #getStatsAsync}, but served from the views cache when it is enabled. Meant for fixed
+     * ranges that repeat across calls.
+     */
+    public Mono<List<ViewStatsDto>> getViewsAsync(String start, String end, List<String> uris, Boolean unique) {
+        if (viewsCache == null || uris.isEmpty()) {
+            return getStatsAsync(start, end, uris, unique);
+        }
+        return viewsCache.getStats(start, end, uris, unique).timeout(queryTimeout);
+    }
+
+    public CompletableFuture<List<ViewStatsDto>> getStatsAfterHitFuture(EndpointHitDto endpointHitDto, String start, String end,
+                                                                         List<String> uris, Boolean unique) {
+        return getStatsAfterHitAsync(endpointHitDto, start, end, uris, unique).toFuture();
+    }
+
+    /**
+     * Sends the hit and queries stats only once it is accepted, so the result includes it. Concurrent calls
+     * for the same query share one request, but only one sent after their own hit was accepted; a new
+     * request waits {@code afterHitQueryLinger} so that callers accepted meanwhile can join it. The views
+     * cache is bypassed. A failed hit is logged and the query still runs. With hit batching or a spool the
+     * hit is only queued when the query starts, so it may not be counted yet.
+     */
+    public Mono<List<ViewStatsDto>> getStatsAfterHitAsync(EndpointHitDto endpointHitDto, String start, String end,
+                                                          List<String> uris, Boolean unique) {
+        return createEndpointHitAsync(endpointHitDto)
+                .onErrorResume(e -> {
+                    log.warn("Failed to send hit for {}: {}", endpointHitDto.getUri(), e.getMessage());
+                    return Mono.empty();
+                })
+                .then(Mono.defer(() -> fetchStatsAfter(System.nanoTime(), start, end, uris, unique).timeout(queryTimeout)));
+    }
+
+    public CompletableFuture<List<ViewStatsDto>> getViewsAfterHitFuture(EndpointHitDto endpointHitDto, String start, String end,
+                                                                         List<String> uris, Boolean unique) {
+        return getViewsAfterHitAsync(endpointHitDto, start, end, uris, unique).toFuture();
+    }
+
+    /**
+     * Same as {@link #getStatsAfterHitAsync}, but with the views cache enabled the hit is sent in the
+     * background and the stats are read from the cache, so they may be up to {@code viewsCacheTtl} old.
+     * The caller's own hit is still reflected: a uri of the hit missing from the cached rows is counted
+     * with one view.
+     */
+    public Mono<List<ViewStatsDto>> getViewsAfterHitAsync(EndpointHitDto endpointHitDto, String start, String end,
+                                                          List<String> uris, Boolean unique) {
+        if (viewsCache == null || uris.isEmpty()) {
+            return getStatsAfterHitAsync(endpointHitDto, start, end, uris, unique);
+        }
+        return Mono.defer(() -> {
+            createEndpointHit(endpointHitDto);
+            return viewsCache.getStats(start, end, uris, unique).timeout(queryTimeout)
+                    .map(stats -> withHit(stats, endpointHitDto, uris));
+        });
     }
 
     public void createEndpointHit(EndpointHitDto endpointHitDto) {
-        webClient.post()
-                .uri("/hit")
-                .contentType(MediaType.APPLICATION_JSON)
-                .body(BodyInserters.fromValue(endpointHitDto))
-                .retrieve()
-                .toBodilessEntity()
-                .block();
+        createEndpointHitAsync(endpointHitDto).subscribe(null,
+                e -> log.warn("Failed to send hit for {}: {}", endpointHitDto.getUri(), e.getMessage()));
+    }
+
+    public Mono<Void> createEndpointHitAsync(EndpointHitDto endpointHitDto) {
+        return ring.nodeFor(endpointHitDto.getUri()).createEndpointHit(endpointHitDto).timeout(hitTimeout);
+    }
+
+    public void createEndpointHits(List<EndpointHitDto> endpointHitDtos) {
+        createEndpointHitsAsync(endpointHitDtos).block();
+    }
+
+    public Mono<Void> createEndpointHitsAsync(List<EndpointHitDto> endpointHitDtos) {
+        if (nodes.size() == 1) {
+            return nodes.get(0).sendEndpointHits(endpointHitDtos).timeout(hitTimeout);
+        }
+        Map<StatsNode, List<EndpointHitDto>> hitsByNode = endpointHitDtos.stream()
+                .collect(Collectors.groupingBy(hit -> ring.nodeFor(hit.getUri()), LinkedHashMap::new, Collectors.toList()));
+        return Flux.fromIterable(hitsByNode.entrySet())
+                .flatMap(entry -> entry.getKey().sendEndpointHits(entry.getValue()))
+                .then()
+                .timeout(hitTimeout);
+    }
+
+    public CacheStats getViewsCacheStats() {
+        return viewsCache != null ? viewsCache.getCacheStats() : CacheStats.empty();
+    }
+
+    public long getBatchDroppedHits() {
+        return nodes.stream().mapToLong(StatsNode::getBatchDroppedHits).sum();
+    }
+
+    public long getSpoolPendingHits() {
+        return nodes.stream().mapToLong(StatsNode::getSpoolPendingHits).sum();
+    }
+
+    public long getSpoolDroppedHits() {
+        return nodes.stream().mapToLong(StatsNode::getSpoolDroppedHits).sum();
+    }
+
+    public Duration getSpoolLag() {
+        return nodes.stream().map(StatsNode::getSpoolLag).max(Comparator.naturalOrder()).orElse(Duration.ZERO);
+    }
+
+    @Override
+    public void close() {
+        nodes.forEach(StatsNode::close);
+    }
+
+    private Mono<List<ViewStatsDto>> fetchStats(String start, String end, List<String> uris, Boolean unique) {
+        if (statsQueries == null) {
+            return queryStats(start, end, uris, unique);
+        }
+        return statsQueries.execute(Arrays.asList(start, end, List.copyOf(uris), unique),
+                () -> querySharedStats(start, end, uris, unique));
+    }
+
+    private Mono<List<ViewStatsDto>> fetchStatsAfter(long notBefore, String start, String end, List<String> uris, Boolean unique) {
+        if (statsQueries == null) {
+            return queryStats(start, end, uris, unique);
+        }
+        return statsQueries.executeAfter(Arrays.asList(start, end, List.copyOf(uris), unique), notBefore, afterHitQueryLinger,
+                () -> querySharedStats(start, end, uris, unique));
+    }
+
+    private Mono<List<ViewStatsDto>> querySharedStats(String start, String end, List<String> uris, Boolean unique) {
+        return queryStats(start, end, uris, unique)
+                .defaultIfEmpty(Collections.emptyList())
+                .map(Collections::unmodifiableList);
+    }
+
+    private Mono<List<ViewStatsDto>> queryStats(String start, String end, List<String> uris, Boolean unique) {
+        List<Map.Entry<StatsNode, List<String>>> requests = new ArrayList<>();
+        if (uris.isEmpty()) {
+            nodes.forEach(node -> requests.add(Map.entry(node, Collections.emptyList())));
+        } else {
+            Map<StatsNode, List<String>> urisByNode = uris.stream()
+                    .distinct()
+                    .collect(Collectors.groupingBy(ring::nodeFor, LinkedHashMap::new, Collectors.toList()));
+            urisByNode.forEach((node, nodeUris) -> {
+                for (int from = 0; from < nodeUris.size(); from += uriChunkSize) {
+                    requests.add(Map.entry(node, nodeUris.subList(from, Math.min(nodeUris.size(), from + uriChunkSize))));
+                }
+            });
+        }
+        if (requests.size() == 1) {
+            return requests.get(0).getKey().getStats(start, end, requests.get(0).getValue(), unique);
+        }
+        return Flux.fromIterable(requests)
+                .flatMap(request -> request.getKey().getStats(start, end, request.getValue(), unique), queryConcurrency)
+                .collectList()
+                .map(StatsClient::merge);
+    }
+
+    private static List<ViewStatsDto> merge(List<List<ViewStatsDto>> results) {
+        Map<List<String>, ViewStatsDto> merged = new LinkedHashMap<>();
+        for (List<ViewStatsDto> result : results) {
+            for (ViewStatsDto viewStatsDto : result) {
+                merged.merge(Arrays.asList(viewStatsDto.getApp(), viewStatsDto.getUri()), viewStatsDto,
+                        (first, second) -> new ViewStatsDto(first.getApp(), first.getUri(), first.getHits() + second.getHits()));
+            }
+        }
+        List<ViewStatsDto> stats = new ArrayList<>(merged.values());
+        stats.sort(Comparator.comparing(ViewStatsDto::getHits).reversed());
+        return stats;
+    }
+
+    private static List<ViewStatsDto> withHit(List<ViewStatsDto> stats, EndpointHitDto endpointHitDto, List<String> uris) {
+        if (!uris.contains(endpointHitDto.getUri())
+                || stats.stream().anyMatch(viewStatsDto -> viewStatsDto.getUri().equals(endpointHitDto.getUri()))) {
+            return stats;
+        }
+        List<ViewStatsDto> withHit = new ArrayList<>(stats);
+        withHit.add(new ViewStatsDto(endpointHitDto.getApp(), endpointHitDto.getUri(), 1L));
+        return withHit;
+    }
+
+    private static Path spoolPath(Path spoolPath, int node, int nodeCount) {
+        if (spoolPath == null || nodeCount == 1) {
+            return spoolPath;
+        }
+        return spoolPath.resolveSibling(spoolPath.getFileName() + "." + node);
     }
 }
@@ -0,0 +1,56 @@
+package ru.practicum.ewm.stats.client;
+
+import lombok.Builder;
+import lombok.Getter;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+@Getter
+@Builder
+public class StatsClientOptions {
+    private final String serverUrl;
+    @Builder.Default
+    private final int batchSize = 1;
+    @Builder.Default
+    private final Duration batchLinger = Duration.ofMillis(5);
+    @Builder.Default
+    private final int batchQueueCapacity = 16384;
+    @Builder.Default
+    private final Duration closeTimeout = Duration.ofSeconds(5);
+    @Builder.Default
+    private final boolean cbor = false;
+    @Builder.Default
+    private final Duration queryTimeout = Duration.ofSeconds(5);
+    @Builder.Default
+    private final Duration hitTimeout = Duration.ofSeconds(5);
+    @Builder.Default
+    private final boolean coalesceQueries = true;
+    @Builder.Default
+    private final Duration queryCacheTtl = Duration.ZERO;
+    @Builder.Default
+    private final Duration afterHitQueryLinger = Duration.ofMillis(5);
+    @Builder.Default
+    private final int uriChunkSize = 100;
+    @Builder.Default
+    private final int queryConcurrency = 4;
+    @Builder.Default
+    private final boolean postQueries = false;
+    @Builder.Default
+    private final long viewsCacheMaxSize = 0;
+    @Builder.Default
+    private final Duration viewsCacheTtl = Duration.ofSeconds(10);
+    @Builder.Default
+    private final Duration viewsCacheMaxStaleness = Duration.ofMinutes(1);
+    private final Path spoolPath;
+    @Builder.Default
+    private final long spoolCapacityBytes = 64L * 1024 * 1024;
+    @Builder.Default
+    private final int spoolBatchSize = 500;
+    @Builder.Default
+    private final Duration spoolInitialBackoff = Duration.ofMillis(100);
+    @Builder.Default
+    private final Duration spoolMaxBackoff = Duration.ofSeconds(30);
+    @Builder.Default
+    private final Duration spoolSendTimeout = Duration.ofSeconds(10);
+}
@@ -0,0 +1,145 @@
+package ru.practicum.ewm.stats.client;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.cbor.Jackson2CborDecoder;
+import org.springframework.http.codec.cbor.Jackson2CborEncoder;
+import org.springframework.web.reactive.function.BodyInserters;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Mono;
+import ru.practicum.ewm.stats.dto.EndpointHitDto;
+import ru.practicum.ewm.stats.dto.StatsCbor;
+import ru.practicum.ewm.stats.dto.StatsQueryDto;
+import ru.practicum.ewm.stats.dto.ViewStatsDto;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+
+@Slf4j
+class StatsNode {
+    private static final ParameterizedTypeReference<List<ViewStatsDto>> VIEW_STATS_LIST =
+            new ParameterizedTypeReference<>() {
+            };
+    private static final DateTimeFormatter DATE_TIME_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    private final WebClient webClient;
+    private final HitBatcher hitBatcher;
+    private final HitSpool hitSpool;
+    private final MediaType[] acceptedTypes;
+    private final boolean postQueries;
+    private volatile MediaType hitContentType;
+
+    StatsNode(String serverUrl, StatsClientOptions options, Path spoolPath) {
+        WebClient.Builder builder = WebClient.builder().baseUrl(serverUrl);
+        if (options.isCbor()) {
+            ObjectMapper cborMapper = StatsCbor.createMapper();
+            builder.codecs(configurer -> {
+                configurer.customCodecs().register(new Jackson2CborEncoder(cborMapper));
+                configurer.customCodecs().register(new Jackson2CborDecoder(cborMapper));
+            });
+            acceptedTypes = new MediaType[]{MediaType.APPLICATION_CBOR, MediaType.APPLICATION_JSON};
+            hitContentType = MediaType.APPLICATION_CBOR;
+        } else {
+            acceptedTypes = new MediaType[]{MediaType.APPLICATION_JSON};
+            hitContentType = MediaType.APPLICATION_JSON;
+        }
+        webClient = builder.build();
+        postQueries = options.isPostQueries();
+        hitBatcher = options.getBatchSize() > 1 ?
+                new HitBatcher(options.getBatchSize(), options.getBatchLinger(), options.getBatchQueueCapacity(),
+                        options.getCloseTimeout(), this::sendEndpointHits) :
+                null;
+        hitSpool = spoolPath != null ?
+                new HitSpool(spoolPath, options.getSpoolCapacityBytes(), options.getSpoolBatchSize(),
+                        options.getSpoolInitialBackoff(), options.getSpoolMaxBackoff(), options.getSpoolSendTimeout(),
+                        options.getCloseTimeout(), this::sendEndpointHits) :
+                null;
+    }
+
+    Mono<List<ViewStatsDto>> getStats(String start, String end, List<String> uris, Boolean unique) {
+        if (postQueries) {
+            return webClient.post()
+                    .uri("/stats/query")
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .accept(acceptedTypes)
+                    .bodyValue(StatsQueryDto.builder()
+                            .start(LocalDateTime.parse(start, DATE_TIME_FORMATTER))
+                            .end(LocalDateTime.parse(end, DATE_TIME_FORMATTER))
+                            .uris(uris)
+                            .unique(unique)
+                            .build())
+                    .retrieve()
+                    .bodyToMono(VIEW_STATS_LIST);
+        }
+        String urisAsString = String.join(",", uris);
+        return webClient.get()
+                .uri("/stats?start={start}&end={end}&uris={uris}&unique={unique}", start, end, urisAsString, unique)
+                .accept(acceptedTypes)
+                .retrieve()
+                .bodyToMono(VIEW_STATS_LIST);
+    }
+
+    Mono<Void> createEndpointHit(EndpointHitDto endpointHitDto) {
+        if (hitSpool != null) {
+            return Mono.fromRunnable(() -> hitSpool.add(endpointHitDto));
+        }
+        if (hitBatcher != null) {
+            return Mono.fromRunnable(() -> hitBatcher.add(endpointHitDto));
+        }
+        return post("/hit", endpointHitDto);
+    }
+
+    Mono<Void> sendEndpointHits(List<EndpointHitDto> endpointHitDtos) {
+        return post("/hits", endpointHitDtos);
+    }
+
+    long getBatchDroppedHits() {
+        return hitBatcher != null ? hitBatcher.getDroppedHits() : 0;
+    }
+
+    long getSpoolPendingHits() {
+        return hitSpool != null ? hitSpool.getPendingHits() : 0;
+    }
+
+    long getSpoolDroppedHits() {
+        return hitSpool != null ? hitSpool.getDroppedHits() : 0;
+    }
+
+    Duration getSpoolLag() {
+        return hitSpool != null ? hitSpool.getLag() : Duration.ZERO;
+    }
+
+    void close() {
+        if (hitBatcher != null) {
+            hitBatcher.close();
+        }
+        if (hitSpool != null) {
+            hitSpool.close();
+        }
+    }
+
+    private Mono<Void> post(String uri, Object body) {
+        MediaType contentType = hitContentType;
+        return webClient.post()
+                .uri(uri)
+                .contentType(contentType)
+                .body(BodyInserters.fromValue(body))
+                .retrieve()
+                .toBodilessEntity()
+                .then()
+                .onErrorResume(WebClientResponseException.UnsupportedMediaType.class, e -> {
+                    if (MediaType.APPLICATION_JSON.equals(contentType)) {
+                        return Mono.error(e);
+                    }
+                    log.warn("Stats server does not accept {}, falling back to JSON", contentType);
+                    hitContentType = MediaType.APPLICATION_JSON;
+                    return post(uri, body);
+                });
+    }
+}
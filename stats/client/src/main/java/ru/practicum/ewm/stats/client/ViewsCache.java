@@ -0,0 +1,116 @@
+package ru.practicum.ewm.stats.client;
+
+import com.github.benmanes.caffeine.cache.AsyncCacheLoader;
+import com.github.benmanes.caffeine.cache.AsyncLoadingCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import ru.practicum.ewm.stats.dto.ViewStatsDto;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.stream.Collectors;
+
+/**
+ * Per-uri cache of stats rows for a given range and unique flag. An entry older than {@code ttl} is
+ * still served while a background reload replaces it; one older than {@code ttl + maxStaleness} is
+ * loaded again before it is returned. Missing uris of one lookup are loaded with a single query, and
+ * uris without hits are cached as empty. Size is bounded by Caffeine's W-TinyLFU eviction.
+ */
+class ViewsCache {
+    private final AsyncLoadingCache<ViewsKey, List<ViewStatsDto>> cache;
+    private final StatsLoader loader;
+
+    ViewsCache(long maximumSize, Duration ttl, Duration maxStaleness, StatsLoader loader) {
+        this.loader = loader;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .refreshAfterWrite(ttl)
+                .expireAfterWrite(ttl.plus(maxStaleness))
+                .recordStats()
+                .buildAsync(new AsyncCacheLoader<ViewsKey, List<ViewStatsDto>>() {
+                    @Override
+                    public CompletableFuture<List<ViewStatsDto>> asyncLoad(ViewsKey key, Executor executor) {
+                        return loadAll(Collections.singletonList(key)).thenApply(views -> views.get(key));
+                    }
+
+                    @Override
+                    public CompletableFuture<Map<ViewsKey, List<ViewStatsDto>>> asyncLoadAll(Iterable<? extends ViewsKey> keys,
+                                                                                             Executor executor) {
+                        return loadAll(keys);
+                    }
+                });
+    }
+
+    Mono<List<ViewStatsDto>> getStats(String start, String end, List<String> uris, Boolean unique) {
+        List<ViewsKey> keys = uris.stream()
+                .distinct()
+                .map(uri -> new ViewsKey(start, end, unique, uri))
+                .collect(Collectors.toList());
+        return Mono.fromFuture(cache.getAll(keys))
+                .map(views -> {
+                    List<ViewStatsDto> stats = new ArrayList<>();
+                    views.values().forEach(stats::addAll);
+                    stats.sort(Comparator.comparing(ViewStatsDto::getHits).reversed());
+                    return stats;
+                });
+    }
+
+    CacheStats getCacheStats() {
+        return cache.synchronous().stats();
+    }
+
+    private CompletableFuture<Map<ViewsKey, List<ViewStatsDto>>> loadAll(Iterable<? extends ViewsKey> keys) {
+        Map<List<Object>, List<ViewsKey>> keysByQuery = new LinkedHashMap<>();
+        for (ViewsKey key : keys) {
+            keysByQuery.computeIfAbsent(Arrays.asList(key.getStart(), key.getEnd(), key.getUnique()), query -> new ArrayList<>())
+                    .add(key);
+        }
+        return Flux.fromIterable(keysByQuery.values())
+                .flatMap(this::load)
+                .<Map<ViewsKey, List<ViewStatsDto>>>collect(HashMap::new, Map::putAll)
+                .toFuture();
+    }
+
+    private Mono<Map<ViewsKey, List<ViewStatsDto>>> load(List<ViewsKey> keys) {
+        ViewsKey query = keys.get(0);
+        List<String> uris = keys.stream()
+                .map(ViewsKey::getUri)
+                .collect(Collectors.toList());
+        return loader.load(query.getStart(), query.getEnd(), uris, query.getUnique())
+                .map(stats -> {
+                    Map<String, List<ViewStatsDto>> statsByUri = stats.stream()
+                            .collect(Collectors.groupingBy(ViewStatsDto::getUri));
+                    Map<ViewsKey, List<ViewStatsDto>> views = new HashMap<>();
+                    keys.forEach(key -> views.put(key, statsByUri.getOrDefault(key.getUri(), Collections.emptyList())));
+                    return views;
+                });
+    }
+
+    interface StatsLoader {
+        Mono<List<ViewStatsDto>> load(String start, String end, List<String> uris, Boolean unique);
+    }
+
+    @Getter
+    @EqualsAndHashCode
+    @RequiredArgsConstructor
+    private static class ViewsKey {
+        private final String start;
+        private final String end;
+        private final Boolean unique;
+        private final String uri;
+    }
+}
@@ -0,0 +1,146 @@
+package ru.practicum.ewm.stats.client;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.practicum.ewm.stats.dto.EndpointHitDto;
+import ru.practicum.ewm.stats.dto.ViewStatsDto;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class StatsClientTest {
+    private static final String START = "2000-01-01 00:00:00";
+    private static final String END = "2100-01-01 00:00:00";
+    private static final List<String> URIS = Collections.singletonList("/events/1");
+    private static final int VIEWERS = 20;
+
+    private final AtomicInteger hits = new AtomicInteger();
+    private final AtomicInteger statsRequests = new AtomicInteger();
+    private final CountDownLatch allHitsReceived = new CountDownLatch(VIEWERS);
+    private ExecutorService executor;
+    private HttpServer server;
+    private StatsClient statsClient;
+
+    @BeforeEach
+    void startServer() throws IOException {
+        executor = Executors.newCachedThreadPool();
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/hit", this::handleHit);
+        server.createContext("/stats", this::handleStats);
+        server.setExecutor(executor);
+        server.start();
+        statsClient = new StatsClient(options().build());
+    }
+
+    @AfterEach
+    void stopServer() {
+        statsClient.close();
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    @Test
+    void concurrentCallsAfterHitShareOneStatsRequest() {
+        List<CompletableFuture<List<ViewStatsDto>>> views = new ArrayList<>();
+        for (int i = 0; i < VIEWERS; i++) {
+            views.add(statsClient.getStatsAfterHitFuture(hit("10.0.0." + (i + 1)), START, END, URIS, true));
+        }
+
+        for (CompletableFuture<List<ViewStatsDto>> view : views) {
+            assertThat(view.join())
+                    .extracting(ViewStatsDto::getHits)
+                    .containsExactly((long) VIEWERS);
+        }
+        assertThat(statsRequests.get()).isEqualTo(1);
+    }
+
+    @Test
+    void callAfterHitDoesNotReuseResultSentBeforeItsHit() {
+        for (int i = 0; i < VIEWERS - 1; i++) {
+            allHitsReceived.countDown();
+        }
+        assertThat(statsClient.getStatsAfterHitFuture(hit("10.0.0.1"), START, END, URIS, true).join())
+                .extracting(ViewStatsDto::getHits)
+                .containsExactly(1L);
+        assertThat(statsClient.getStatsFuture(START, END, URIS, true).join())
+                .extracting(ViewStatsDto::getHits)
+                .containsExactly(1L);
+
+        assertThat(statsClient.getStatsAfterHitFuture(hit("10.0.0.2"), START, END, URIS, true).join())
+                .extracting(ViewStatsDto::getHits)
+                .containsExactly(2L);
+        assertThat(statsRequests.get()).isEqualTo(2);
+    }
+
+    @Test
+    void callsAfterHitWithViewsCacheShareCachedViews() {
+        for (int i = 0; i < VIEWERS - 1; i++) {
+            allHitsReceived.countDown();
+        }
+        try (StatsClient cachedClient = new StatsClient(options().viewsCacheMaxSize(100).build())) {
+            for (int i = 0; i < 3; i++) {
+                assertThat(cachedClient.getViewsAfterHitFuture(hit("10.0.0.1"), START, END, URIS, true).join())
+                        .extracting(ViewStatsDto::getUri)
+                        .containsExactly(URIS.get(0));
+            }
+        }
+        assertThat(statsRequests.get()).isEqualTo(1);
+    }
+
+    private StatsClientOptions.StatsClientOptionsBuilder options() {
+        return StatsClientOptions.builder()
+                .serverUrl("http://localhost:" + server.getAddress().getPort())
+                .queryCacheTtl(Duration.ofMinutes(1))
+                .afterHitQueryLinger(Duration.ofMillis(500));
+    }
+
+    private void handleHit(HttpExchange exchange) throws IOException {
+        exchange.getRequestBody().readAllBytes();
+        hits.incrementAndGet();
+        allHitsReceived.countDown();
+        try {
+            allHitsReceived.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        exchange.sendResponseHeaders(201, -1);
+        exchange.close();
+    }
+
+    private void handleStats(HttpExchange exchange) throws IOException {
+        statsRequests.incrementAndGet();
+        byte[] body = ("[{\"app\":\"ewm\",\"uri\":\"/events/1\",\"hits\":" + hits.get() + "}]").getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+        exchange.sendResponseHeaders(200, body.length);
+        try (OutputStream outputStream = exchange.getResponseBody()) {
+            outputStream.write(body);
+        }
+    }
+
+    private static EndpointHitDto hit(String ip) {
+        return EndpointHitDto.builder()
+                .app("ewm")
+                .uri(URIS.get(0))
+                .ip(ip)
+                .hitTimestamp(LocalDateTime.now())
+                .build();
+    }
+}
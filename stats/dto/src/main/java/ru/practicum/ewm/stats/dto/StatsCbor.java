@@ -0,0 +1,51 @@
+package ru.practicum.ewm.stats.dto;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.JsonDeserializer;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import lombok.experimental.UtilityClass;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+
+/**
+ * Binary wire format shared by the stats client and server, negotiated as application/cbor.
+ * Timestamps travel as epoch seconds instead of formatted strings. The mapper is thread-safe
+ * and meant to be created once per process, so Jackson can recycle its encoding buffers.
+ */
+@UtilityClass
+public class StatsCbor {
+    public static ObjectMapper createMapper() {
+        return new ObjectMapper(new CBORFactory())
+                .addMixIn(EndpointHitDto.class, EndpointHitMixIn.class);
+    }
+
+    private abstract static class EndpointHitMixIn {
+        @JsonSerialize(using = EpochSecondSerializer.class)
+        @JsonDeserialize(using = EpochSecondDeserializer.class)
+        private LocalDateTime hitTimestamp;
+    }
+
+    static class EpochSecondSerializer extends JsonSerializer<LocalDateTime> {
+        @Override
+        public void serialize(LocalDateTime value, JsonGenerator generator, SerializerProvider provider)
+                throws IOException {
+            generator.writeNumber(value.toEpochSecond(ZoneOffset.UTC));
+        }
+    }
+
+    static class EpochSecondDeserializer extends JsonDeserializer<LocalDateTime> {
+        @Override
+        public LocalDateTime deserialize(JsonParser parser, DeserializationContext context) throws IOException {
+            return LocalDateTime.ofEpochSecond(parser.getLongValue(), 0, ZoneOffset.UTC);
+        }
+    }
+}
@@ -2,6 +2,7 @@ package ru.practicum.ewm.stats.server.data;
 
 import lombok.Getter;
 import lombok.Setter;
+import org.hibernate.annotations.ColumnTransformer;
 
 import javax.persistence.*;
 import java.time.LocalDateTime;
@@ -16,15 +17,22 @@ public class EndpointHit {
     @Column(name = "id")
     private Long id;
 
-    @Column(name = "app")
+    @Transient
     private String app;
 
-    @Column(name = "uri")
+    @Transient
     private String uri;
 
+    @Column(name = "app_id")
+    private Integer appId;
+
+    @Column(name = "uri_id")
+    private Integer uriId;
+
     @Column(name = "ip")
+    @ColumnTransformer(read = "host(ip)", write = "CAST(? AS inet)")
     private String ip;
 
     @Column(name = "hit_timestamp")
     private LocalDateTime hitTimestamp;
-}
\ No newline at end of file
+}
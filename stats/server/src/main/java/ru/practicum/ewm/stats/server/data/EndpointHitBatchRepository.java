@@ -0,0 +1,26 @@
+package ru.practicum.ewm.stats.server.data;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.util.List;
+
+@Repository
+@RequiredArgsConstructor
+public class EndpointHitBatchRepository {
+    private static final String INSERT_SQL = "INSERT INTO endpoints_hits (app_id, uri_id, ip, hit_timestamp) " +
+            "VALUES (?, ?, CAST(? AS inet), ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public void insertAll(List<EndpointHit> hits) {
+        jdbcTemplate.batchUpdate(INSERT_SQL, hits, hits.size(), (ps, hit) -> {
+            ps.setInt(1, hit.getAppId());
+            ps.setInt(2, hit.getUriId());
+            ps.setString(3, hit.getIp());
+            ps.setTimestamp(4, Timestamp.valueOf(hit.getHitTimestamp()));
+        });
+    }
+}
@@ -1,14 +1,22 @@
 package ru.practicum.ewm.stats.server.data;
 
 import org.mapstruct.Mapper;
+import org.mapstruct.Mapping;
 import org.mapstruct.factory.Mappers;
 import ru.practicum.ewm.stats.dto.EndpointHitDto;
 
+import java.util.List;
+
 @Mapper
 public interface EndpointHitMapper {
     EndpointHitMapper INSTANCE = Mappers.getMapper(EndpointHitMapper.class);
 
+    @Mapping(target = "id", ignore = true)
+    @Mapping(target = "appId", ignore = true)
+    @Mapping(target = "uriId", ignore = true)
     EndpointHit fromDto(EndpointHitDto endpointHitDto);
 
+    List<EndpointHit> fromDtos(List<EndpointHitDto> endpointHitDtos);
+
     EndpointHitDto toDto(EndpointHit endpointHit);
 }
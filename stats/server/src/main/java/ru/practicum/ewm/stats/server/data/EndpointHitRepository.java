@@ -10,25 +10,51 @@ import java.util.List;
 
 @Repository
 public interface EndpointHitRepository extends JpaRepository<EndpointHit, Long> {
-    @Query("SELECT e.app AS app, e.uri AS uri, COUNT(DISTINCT e.ip) AS hits " +
-            "FROM EndpointHit e " +
-            "WHERE e.hitTimestamp BETWEEN :start AND :end " +
-            "AND ((:uris) IS NULL OR e.uri IN :uris) " +
-            "GROUP BY e.app, e.uri " +
-            "ORDER BY hits DESC")
-    List<ViewStatsProjection> findUniqueStats(@Param("start") LocalDateTime start,
-                                              @Param("end") LocalDateTime end,
-                                              @Param("uris") List<String> uris);
+    @Query(value = "SELECT e.app_id AS \"appId\", e.uri_id AS \"uriId\", COUNT(DISTINCT e.ip) AS \"hits\" " +
+            "FROM endpoints_hits e " +
+            "WHERE e.hit_timestamp BETWEEN :start AND :end " +
+            "AND (:allUris = TRUE OR e.uri_id IN (:uriIds)) " +
+            "GROUP BY e.app_id, e.uri_id", nativeQuery = true)
+    List<HitCountProjection> findUniqueStats(@Param("start") LocalDateTime start,
+                                             @Param("end") LocalDateTime end,
+                                             @Param("allUris") boolean allUris,
+                                             @Param("uriIds") List<Integer> uriIds);
 
-    @Query("SELECT e.app AS app, e.uri AS uri, COUNT(e.ip) AS hits " +
-            "FROM EndpointHit e " +
-            "WHERE e.hitTimestamp BETWEEN :start AND :end " +
-            "AND ((:uris) IS NULL OR e.uri IN :uris) " +
-            "GROUP BY e.app, e.uri " +
-            "ORDER BY hits DESC")
-    List<ViewStatsProjection> findNotUniqueStats(@Param("start") LocalDateTime start,
-                                                 @Param("end") LocalDateTime end,
-                                                 @Param("uris") List<String> uris);
+    @Query(value = "SELECT e.app_id AS \"appId\", e.uri_id AS \"uriId\", COUNT(*) AS \"hits\" " +
+            "FROM endpoints_hits e " +
+            "WHERE e.hit_timestamp BETWEEN :start AND :end " +
+            "AND (:allUris = TRUE OR e.uri_id IN (:uriIds)) " +
+            "GROUP BY e.app_id, e.uri_id", nativeQuery = true)
+    List<HitCountProjection> findNotUniqueStats(@Param("start") LocalDateTime start,
+                                                @Param("end") LocalDateTime end,
+                                                @Param("allUris") boolean allUris,
+                                                @Param("uriIds") List<Integer> uriIds);
 
-}
+    @Query(value = "SELECT e.app_id AS \"appId\", e.uri_id AS \"uriId\", COUNT(*) AS \"hits\" " +
+            "FROM endpoints_hits e " +
+            "WHERE e.hit_timestamp >= :start AND e.hit_timestamp < :end " +
+            "AND (:allUris = TRUE OR e.uri_id IN (:uriIds)) " +
+            "GROUP BY e.app_id, e.uri_id", nativeQuery = true)
+    List<HitCountProjection> findNotUniqueStatsBefore(@Param("start") LocalDateTime start,
+                                                      @Param("end") LocalDateTime end,
+                                                      @Param("allUris") boolean allUris,
+                                                      @Param("uriIds") List<Integer> uriIds);
+
+    @Query(value = "SELECT DISTINCT e.app_id AS \"appId\", e.uri_id AS \"uriId\", host(e.ip) AS \"ip\" " +
+            "FROM endpoints_hits e " +
+            "WHERE e.hit_timestamp BETWEEN :start AND :end " +
+            "AND (:allUris = TRUE OR e.uri_id IN (:uriIds))", nativeQuery = true)
+    List<VisitorProjection> findVisitors(@Param("start") LocalDateTime start,
+                                         @Param("end") LocalDateTime end,
+                                         @Param("allUris") boolean allUris,
+                                         @Param("uriIds") List<Integer> uriIds);
 
+    @Query(value = "SELECT DISTINCT e.app_id AS \"appId\", e.uri_id AS \"uriId\", host(e.ip) AS \"ip\" " +
+            "FROM endpoints_hits e " +
+            "WHERE e.hit_timestamp >= :start AND e.hit_timestamp < :end " +
+            "AND (:allUris = TRUE OR e.uri_id IN (:uriIds))", nativeQuery = true)
+    List<VisitorProjection> findVisitorsBefore(@Param("start") LocalDateTime start,
+                                               @Param("end") LocalDateTime end,
+                                               @Param("allUris") boolean allUris,
+                                               @Param("uriIds") List<Integer> uriIds);
+}
@@ -0,0 +1,10 @@
+package ru.practicum.ewm.stats.server.data;
+
+import lombok.Value;
+
+@Value
+public class HitCount implements HitCountProjection {
+    Integer appId;
+    Integer uriId;
+    Long hits;
+}
@@ -0,0 +1,9 @@
+package ru.practicum.ewm.stats.server.data;
+
+public interface HitCountProjection {
+    Integer getAppId();
+
+    Integer getUriId();
+
+    Long getHits();
+}
@@ -0,0 +1,39 @@
+package ru.practicum.ewm.stats.server.data;
+
+import lombok.Value;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+
+@Value
+public class HitPartition {
+    private static final String NAME_PREFIX = "endpoints_hits_p";
+    private static final DateTimeFormatter NAME_DATE_FORMAT = DateTimeFormatter.BASIC_ISO_DATE;
+
+    LocalDate from;
+    LocalDate to;
+
+    public static HitPartition parse(String name) {
+        if (!name.startsWith(NAME_PREFIX)) {
+            return null;
+        }
+        String[] dates = name.substring(NAME_PREFIX.length()).split("_");
+        if (dates.length != 2) {
+            return null;
+        }
+        try {
+            return new HitPartition(LocalDate.parse(dates[0], NAME_DATE_FORMAT), LocalDate.parse(dates[1], NAME_DATE_FORMAT));
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+
+    public String getName() {
+        return NAME_PREFIX + from.format(NAME_DATE_FORMAT) + "_" + to.format(NAME_DATE_FORMAT);
+    }
+
+    public boolean overlaps(HitPartition other) {
+        return from.isBefore(other.to) && other.from.isBefore(to);
+    }
+}
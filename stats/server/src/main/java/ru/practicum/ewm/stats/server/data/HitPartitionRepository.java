@@ -0,0 +1,66 @@
+package ru.practicum.ewm.stats.server.data;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import java.util.stream.Collectors;
+
+@Repository
+@RequiredArgsConstructor
+public class HitPartitionRepository {
+    private static final String FIND_PARTITIONS_SQL = "SELECT c.relname FROM pg_inherits i " +
+            "JOIN pg_class c ON c.oid = i.inhrelid " +
+            "JOIN pg_class p ON p.oid = i.inhparent " +
+            "WHERE p.relname = 'endpoints_hits'";
+    private static final String CREATE_TABLE_SQL = "CREATE TABLE %s (LIKE endpoints_hits INCLUDING DEFAULTS)";
+    private static final String COPY_FROM_DEFAULT_SQL = "INSERT INTO %s SELECT * FROM endpoints_hits_default " +
+            "WHERE hit_timestamp >= ? AND hit_timestamp < ?";
+    private static final String DELETE_FROM_DEFAULT_SQL = "DELETE FROM endpoints_hits_default " +
+            "WHERE hit_timestamp >= ? AND hit_timestamp < ?";
+    private static final String ATTACH_SQL = "ALTER TABLE endpoints_hits ATTACH PARTITION %s FOR VALUES FROM ('%s') TO ('%s')";
+    private static final String DROP_SQL = "DROP TABLE IF EXISTS %s";
+    private static final String FIND_DEFAULT_DAYS_SQL = "SELECT DISTINCT CAST(hit_timestamp AS DATE) FROM endpoints_hits_default " +
+            "WHERE hit_timestamp >= ?";
+    private static final String DELETE_DEFAULT_BEFORE_SQL = "DELETE FROM endpoints_hits_default WHERE hit_timestamp < ?";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public List<HitPartition> findAll() {
+        return jdbcTemplate.queryForList(FIND_PARTITIONS_SQL, String.class).stream()
+                .map(HitPartition::parse)
+                .filter(Objects::nonNull)
+                .sorted(Comparator.comparing(HitPartition::getFrom))
+                .collect(Collectors.toList());
+    }
+
+    @Transactional
+    public void create(HitPartition partition) {
+        Timestamp from = Timestamp.valueOf(partition.getFrom().atStartOfDay());
+        Timestamp to = Timestamp.valueOf(partition.getTo().atStartOfDay());
+        jdbcTemplate.execute(String.format(CREATE_TABLE_SQL, partition.getName()));
+        int moved = jdbcTemplate.update(String.format(COPY_FROM_DEFAULT_SQL, partition.getName()), from, to);
+        if (moved > 0) {
+            jdbcTemplate.update(DELETE_FROM_DEFAULT_SQL, from, to);
+        }
+        jdbcTemplate.execute(String.format(ATTACH_SQL, partition.getName(), partition.getFrom(), partition.getTo()));
+    }
+
+    public void drop(HitPartition partition) {
+        jdbcTemplate.execute(String.format(DROP_SQL, partition.getName()));
+    }
+
+    public List<LocalDate> findDefaultDays(LocalDate from) {
+        return jdbcTemplate.queryForList(FIND_DEFAULT_DAYS_SQL, LocalDate.class, Timestamp.valueOf(from.atStartOfDay()));
+    }
+
+    public int deleteDefaultBefore(LocalDate cutoff) {
+        return jdbcTemplate.update(DELETE_DEFAULT_BEFORE_SQL, Timestamp.valueOf(cutoff.atStartOfDay()));
+    }
+}
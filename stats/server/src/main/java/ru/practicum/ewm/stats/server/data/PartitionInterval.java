@@ -0,0 +1,34 @@
+package ru.practicum.ewm.stats.server.data;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.temporal.TemporalAdjusters;
+
+public enum PartitionInterval {
+    DAY {
+        @Override
+        public LocalDate periodStart(LocalDate date) {
+            return date;
+        }
+
+        @Override
+        public LocalDate next(LocalDate periodStart) {
+            return periodStart.plusDays(1);
+        }
+    },
+    WEEK {
+        @Override
+        public LocalDate periodStart(LocalDate date) {
+            return date.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+        }
+
+        @Override
+        public LocalDate next(LocalDate periodStart) {
+            return periodStart.plusWeeks(1);
+        }
+    };
+
+    public abstract LocalDate periodStart(LocalDate date);
+
+    public abstract LocalDate next(LocalDate periodStart);
+}
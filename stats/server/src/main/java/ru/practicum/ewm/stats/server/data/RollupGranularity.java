@@ -0,0 +1,26 @@
+package ru.practicum.ewm.stats.server.data;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+
+@Getter
+@RequiredArgsConstructor
+public enum RollupGranularity {
+    MINUTE("endpoints_hits_minutely", ChronoUnit.MINUTES),
+    HOUR("endpoints_hits_hourly", ChronoUnit.HOURS);
+
+    private final String tableName;
+    private final ChronoUnit unit;
+
+    public LocalDateTime floor(LocalDateTime dateTime) {
+        return dateTime.truncatedTo(unit);
+    }
+
+    public LocalDateTime ceil(LocalDateTime dateTime) {
+        LocalDateTime floor = floor(dateTime);
+        return floor.equals(dateTime) ? floor : floor.plus(1, unit);
+    }
+}
@@ -0,0 +1,79 @@
+package ru.practicum.ewm.stats.server.data;
+
+import lombok.RequiredArgsConstructor;
+import lombok.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+@Repository
+@RequiredArgsConstructor
+public class RollupRepository {
+    private static final String UPSERT_SQL = "INSERT INTO %1$s (bucket, app_id, uri_id, hits) VALUES (?, ?, ?, ?) " +
+            "ON CONFLICT (bucket, app_id, uri_id) DO UPDATE SET hits = %1$s.hits + EXCLUDED.hits";
+    private static final String SELECT_SQL = "SELECT app_id, uri_id, SUM(hits) AS hits FROM %s " +
+            "WHERE bucket >= :from AND bucket < :to %s" +
+            "GROUP BY app_id, uri_id";
+    private static final String DELETE_BEFORE_SQL = "DELETE FROM %s WHERE bucket < ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+
+    public void addHits(List<EndpointHit> hits) {
+        for (RollupGranularity granularity : RollupGranularity.values()) {
+            Map<RollupKey, Long> counts = new TreeMap<>();
+            for (EndpointHit hit : hits) {
+                counts.merge(new RollupKey(granularity.floor(hit.getHitTimestamp()), hit.getAppId(), hit.getUriId()), 1L, Long::sum);
+            }
+            List<Map.Entry<RollupKey, Long>> rows = new ArrayList<>(counts.entrySet());
+            jdbcTemplate.batchUpdate(String.format(UPSERT_SQL, granularity.getTableName()), rows, rows.size(), (ps, row) -> {
+                ps.setTimestamp(1, Timestamp.valueOf(row.getKey().getBucket()));
+                ps.setInt(2, row.getKey().getAppId());
+                ps.setInt(3, row.getKey().getUriId());
+                ps.setLong(4, row.getValue());
+            });
+        }
+    }
+
+    public List<HitCount> findHits(RollupGranularity granularity, LocalDateTime from, LocalDateTime to, UriFilter uriFilter) {
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("from", Timestamp.valueOf(from))
+                .addValue("to", Timestamp.valueOf(to));
+        String uriCondition = "";
+        if (!uriFilter.isAll()) {
+            params.addValue("uriIds", uriFilter.getQueryUriIds());
+            uriCondition = "AND uri_id IN (:uriIds) ";
+        }
+        return namedParameterJdbcTemplate.query(String.format(SELECT_SQL, granularity.getTableName(), uriCondition), params,
+                (rs, rowNum) -> new HitCount(rs.getInt("app_id"), rs.getInt("uri_id"), rs.getLong("hits")));
+    }
+
+    public int deleteBefore(RollupGranularity granularity, LocalDateTime cutoff) {
+        return jdbcTemplate.update(String.format(DELETE_BEFORE_SQL, granularity.getTableName()), Timestamp.valueOf(cutoff));
+    }
+
+    @Value
+    private static class RollupKey implements Comparable<RollupKey> {
+        private static final Comparator<RollupKey> ORDER = Comparator.comparing(RollupKey::getBucket)
+                .thenComparing(RollupKey::getAppId)
+                .thenComparing(RollupKey::getUriId);
+
+        LocalDateTime bucket;
+        Integer appId;
+        Integer uriId;
+
+        @Override
+        public int compareTo(RollupKey other) {
+            return ORDER.compare(this, other);
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package ru.practicum.ewm.stats.server.data;
+
+import lombok.RequiredArgsConstructor;
+import lombok.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+import ru.practicum.ewm.stats.server.util.HyperLogLog;
+import ru.practicum.ewm.stats.server.util.IpAddresses;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+
+@Repository
+@RequiredArgsConstructor
+public class SketchRepository {
+    private static final String INSERT_EMPTY_SQL = "INSERT INTO endpoints_hits_hourly_sketches (bucket, app_id, uri_id, sketch) " +
+            "VALUES (?, ?, ?, ''::bytea) ON CONFLICT (bucket, app_id, uri_id) DO NOTHING";
+    private static final String LOCK_SQL = "SELECT bucket, app_id, uri_id, sketch FROM endpoints_hits_hourly_sketches " +
+            "WHERE (bucket, app_id, uri_id) IN (:keys) " +
+            "ORDER BY bucket, app_id, uri_id FOR UPDATE";
+    private static final String UPDATE_SQL = "UPDATE endpoints_hits_hourly_sketches SET sketch = ? " +
+            "WHERE bucket = ? AND app_id = ? AND uri_id = ?";
+    private static final String SELECT_SQL = "SELECT app_id, uri_id, sketch FROM endpoints_hits_hourly_sketches " +
+            "WHERE bucket >= :from AND bucket < :to %s";
+    private static final String DELETE_BEFORE_SQL = "DELETE FROM endpoints_hits_hourly_sketches WHERE bucket < ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+
+    public void addHits(List<EndpointHit> hits) {
+        Map<SketchKey, HyperLogLog> sketches = new TreeMap<>();
+        for (EndpointHit hit : hits) {
+            SketchKey key = new SketchKey(RollupGranularity.HOUR.floor(hit.getHitTimestamp()), hit.getAppId(), hit.getUriId());
+            sketches.computeIfAbsent(key, k -> new HyperLogLog()).add(IpAddresses.toBytes(hit.getIp()));
+        }
+        List<SketchKey> keys = new ArrayList<>(sketches.keySet());
+        jdbcTemplate.batchUpdate(INSERT_EMPTY_SQL, keys, keys.size(), (ps, key) -> {
+            ps.setTimestamp(1, Timestamp.valueOf(key.getBucket()));
+            ps.setInt(2, key.getAppId());
+            ps.setInt(3, key.getUriId());
+        });
+        List<Object[]> keyParams = keys.stream()
+                .map(key -> new Object[]{Timestamp.valueOf(key.getBucket()), key.getAppId(), key.getUriId()})
+                .collect(Collectors.toList());
+        namedParameterJdbcTemplate.query(LOCK_SQL, new MapSqlParameterSource("keys", keyParams), rs -> {
+            SketchKey key = new SketchKey(rs.getTimestamp("bucket").toLocalDateTime(), rs.getInt("app_id"), rs.getInt("uri_id"));
+            sketches.get(key).merge(HyperLogLog.fromBytes(rs.getBytes("sketch")));
+        });
+        List<Map.Entry<SketchKey, HyperLogLog>> rows = new ArrayList<>(sketches.entrySet());
+        jdbcTemplate.batchUpdate(UPDATE_SQL, rows, rows.size(), (ps, row) -> {
+            ps.setBytes(1, row.getValue().toBytes());
+            ps.setTimestamp(2, Timestamp.valueOf(row.getKey().getBucket()));
+            ps.setInt(3, row.getKey().getAppId());
+            ps.setInt(4, row.getKey().getUriId());
+        });
+    }
+
+    public void mergeSketches(LocalDateTime from, LocalDateTime to, UriFilter uriFilter, SketchConsumer consumer) {
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("from", Timestamp.valueOf(from))
+                .addValue("to", Timestamp.valueOf(to));
+        String uriCondition = "";
+        if (!uriFilter.isAll()) {
+            params.addValue("uriIds", uriFilter.getQueryUriIds());
+            uriCondition = "AND uri_id IN (:uriIds)";
+        }
+        namedParameterJdbcTemplate.query(String.format(SELECT_SQL, uriCondition), params, rs -> {
+            consumer.accept(rs.getInt("app_id"), rs.getInt("uri_id"), HyperLogLog.fromBytes(rs.getBytes("sketch")));
+        });
+    }
+
+    public int deleteBefore(LocalDateTime cutoff) {
+        return jdbcTemplate.update(DELETE_BEFORE_SQL, Timestamp.valueOf(cutoff));
+    }
+
+    public interface SketchConsumer {
+        void accept(int appId, int uriId, HyperLogLog sketch);
+    }
+
+    @Value
+    private static class SketchKey implements Comparable<SketchKey> {
+        private static final Comparator<SketchKey> ORDER = Comparator.comparing(SketchKey::getBucket)
+                .thenComparing(SketchKey::getAppId)
+                .thenComparing(SketchKey::getUriId);
+
+        LocalDateTime bucket;
+        Integer appId;
+        Integer uriId;
+
+        @Override
+        public int compareTo(SketchKey other) {
+            return ORDER.compare(this, other);
+        }
+    }
+}
@@ -0,0 +1,139 @@
+package ru.practicum.ewm.stats.server.data;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+@Repository
+public class StatsDictionary {
+    private static final int INSERT_ATTEMPTS = 3;
+
+    private final Dictionary apps;
+    private final Dictionary uris;
+
+    public StatsDictionary(JdbcTemplate jdbcTemplate, NamedParameterJdbcTemplate namedParameterJdbcTemplate) {
+        this.apps = new Dictionary("stats_apps", "app_id", "app_name", jdbcTemplate, namedParameterJdbcTemplate);
+        this.uris = new Dictionary("stats_uris", "uri_id", "uri_name", jdbcTemplate, namedParameterJdbcTemplate);
+    }
+
+    /**
+     * Registers unknown app and uri names and sets their ids on the hits. Must be called outside the hit write
+     * transaction: each new name is committed on its own, so the cached id stays valid even if the write rolls back,
+     * and the write does not hold a second pool connection while names are registered.
+     */
+    public void resolveIds(List<EndpointHit> hits) {
+        for (EndpointHit hit : hits) {
+            hit.setAppId(apps.getOrCreateId(hit.getApp()));
+            hit.setUriId(uris.getOrCreateId(hit.getUri()));
+        }
+    }
+
+    public UriFilter findUriFilter(List<String> uriNames) {
+        if (uriNames == null) {
+            return UriFilter.all();
+        }
+        return UriFilter.of(new ArrayList<>(uris.findIds(uriNames).values()));
+    }
+
+    public Map<Integer, String> findAppNames(Collection<Integer> ids) {
+        return apps.findNames(ids);
+    }
+
+    public Map<Integer, String> findUriNames(Collection<Integer> ids) {
+        return uris.findNames(ids);
+    }
+
+    private static class Dictionary {
+        private final ConcurrentMap<String, Integer> idsByName = new ConcurrentHashMap<>();
+        private final ConcurrentMap<Integer, String> namesById = new ConcurrentHashMap<>();
+        private final String insertSql;
+        private final String selectIdSql;
+        private final String selectIdsSql;
+        private final String selectNamesSql;
+        private final JdbcTemplate jdbcTemplate;
+        private final NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+
+        Dictionary(String table, String idColumn, String nameColumn,
+                   JdbcTemplate jdbcTemplate, NamedParameterJdbcTemplate namedParameterJdbcTemplate) {
+            this.insertSql = "INSERT INTO " + table + " (" + nameColumn + ") VALUES (?) ON CONFLICT (" + nameColumn + ") DO NOTHING " +
+                    "RETURNING " + idColumn;
+            this.selectIdSql = "SELECT " + idColumn + " FROM " + table + " WHERE " + nameColumn + " = ?";
+            this.selectIdsSql = "SELECT " + idColumn + " AS id, " + nameColumn + " AS name FROM " + table + " WHERE " + nameColumn + " IN (:names)";
+            this.selectNamesSql = "SELECT " + idColumn + " AS id, " + nameColumn + " AS name FROM " + table + " WHERE " + idColumn + " IN (:ids)";
+            this.jdbcTemplate = jdbcTemplate;
+            this.namedParameterJdbcTemplate = namedParameterJdbcTemplate;
+        }
+
+        int getOrCreateId(String name) {
+            Integer cached = idsByName.get(name);
+            if (cached != null) {
+                return cached;
+            }
+            for (int attempt = 0; attempt < INSERT_ATTEMPTS; attempt++) {
+                List<Integer> ids = jdbcTemplate.queryForList(insertSql, Integer.class, name);
+                if (ids.isEmpty()) {
+                    ids = jdbcTemplate.queryForList(selectIdSql, Integer.class, name);
+                }
+                if (!ids.isEmpty()) {
+                    cache(ids.get(0), name);
+                    return ids.get(0);
+                }
+            }
+            throw new IllegalStateException("Could not register dictionary value " + name);
+        }
+
+        Map<String, Integer> findIds(Collection<String> names) {
+            Map<String, Integer> result = new HashMap<>();
+            List<String> missing = new ArrayList<>();
+            for (String name : names) {
+                Integer id = idsByName.get(name);
+                if (id != null) {
+                    result.put(name, id);
+                } else {
+                    missing.add(name);
+                }
+            }
+            if (!missing.isEmpty()) {
+                namedParameterJdbcTemplate.query(selectIdsSql, new MapSqlParameterSource("names", missing), rs -> {
+                    cache(rs.getInt("id"), rs.getString("name"));
+                    result.put(rs.getString("name"), rs.getInt("id"));
+                });
+            }
+            return result;
+        }
+
+        Map<Integer, String> findNames(Collection<Integer> ids) {
+            Map<Integer, String> result = new HashMap<>();
+            List<Integer> missing = new ArrayList<>();
+            for (Integer id : ids) {
+                String name = namesById.get(id);
+                if (name != null) {
+                    result.put(id, name);
+                } else {
+                    missing.add(id);
+                }
+            }
+            if (!missing.isEmpty()) {
+                namedParameterJdbcTemplate.query(selectNamesSql, new MapSqlParameterSource("ids", missing), rs -> {
+                    cache(rs.getInt("id"), rs.getString("name"));
+                    result.put(rs.getInt("id"), rs.getString("name"));
+                });
+            }
+            return result;
+        }
+
+        private void cache(int id, String name) {
+            idsByName.put(name, id);
+            namesById.put(id, name);
+        }
+    }
+}
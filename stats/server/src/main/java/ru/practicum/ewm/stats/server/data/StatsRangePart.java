@@ -0,0 +1,54 @@
+package ru.practicum.ewm.stats.server.data;
+
+import lombok.Value;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+@Value
+public class StatsRangePart {
+    RollupGranularity granularity;
+    LocalDateTime from;
+    LocalDateTime to;
+    boolean toInclusive;
+
+    public boolean isRaw() {
+        return granularity == null;
+    }
+
+    public static List<StatsRangePart> split(LocalDateTime start, LocalDateTime end, boolean endInclusive) {
+        List<StatsRangePart> parts = new ArrayList<>();
+        LocalDateTime minuteFrom = RollupGranularity.MINUTE.ceil(start);
+        LocalDateTime minuteTo = RollupGranularity.MINUTE.floor(end);
+        if (!minuteFrom.isBefore(minuteTo)) {
+            addRaw(parts, start, end, endInclusive);
+            return parts;
+        }
+        addRaw(parts, start, minuteFrom, false);
+        LocalDateTime hourFrom = RollupGranularity.HOUR.ceil(minuteFrom);
+        LocalDateTime hourTo = RollupGranularity.HOUR.floor(minuteTo);
+        if (hourFrom.isBefore(hourTo)) {
+            addRollup(parts, RollupGranularity.MINUTE, minuteFrom, hourFrom);
+            addRollup(parts, RollupGranularity.HOUR, hourFrom, hourTo);
+            addRollup(parts, RollupGranularity.MINUTE, hourTo, minuteTo);
+        } else {
+            addRollup(parts, RollupGranularity.MINUTE, minuteFrom, minuteTo);
+        }
+        addRaw(parts, minuteTo, end, endInclusive);
+        return parts;
+    }
+
+    private static void addRaw(List<StatsRangePart> parts, LocalDateTime from, LocalDateTime to, boolean toInclusive) {
+        if (toInclusive || from.isBefore(to)) {
+            parts.add(new StatsRangePart(null, from, to, toInclusive));
+        }
+    }
+
+    private static void addRollup(List<StatsRangePart> parts, RollupGranularity granularity,
+                                  LocalDateTime from, LocalDateTime to) {
+        if (from.isBefore(to)) {
+            parts.add(new StatsRangePart(granularity, from, to, false));
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package ru.practicum.ewm.stats.server.data;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+import ru.practicum.ewm.stats.dto.ViewStatsDto;
+
+import javax.sql.DataSource;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.function.Consumer;
+
+@Repository
+public class StatsStreamRepository {
+    private static final String NAMED_RESULT_SQL = "SELECT a.app_name AS app, u.uri_name AS uri, t.hits FROM (%s) t " +
+            "JOIN stats_apps a ON a.app_id = t.app_id " +
+            "JOIN stats_uris u ON u.uri_id = t.uri_id";
+    private static final String ORDER_BY_HITS_SQL = " ORDER BY t.hits DESC";
+    private static final String MERGE_SQL = "SELECT app_id, uri_id, SUM(hits) AS hits FROM (%s) p GROUP BY app_id, uri_id";
+    private static final String RAW_SQL = "SELECT app_id, uri_id, %1$s AS hits FROM endpoints_hits " +
+            "WHERE hit_timestamp >= :from%2$d AND hit_timestamp %3$s :to%2$d %4$s" +
+            "GROUP BY app_id, uri_id";
+    private static final String ROLLUP_SQL = "SELECT app_id, uri_id, SUM(hits) AS hits FROM %1$s " +
+            "WHERE bucket >= :from%2$d AND bucket < :to%2$d %3$s" +
+            "GROUP BY app_id, uri_id";
+
+    private final NamedParameterJdbcTemplate cursorTemplate;
+
+    public StatsStreamRepository(DataSource dataSource,
+                                 @Value("${stats.stream.fetch-size:1000}") int fetchSize) {
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.setFetchSize(fetchSize);
+        this.cursorTemplate = new NamedParameterJdbcTemplate(jdbcTemplate);
+    }
+
+    public void streamNotUniqueStats(List<StatsRangePart> parts, UriFilter uriFilter, boolean ordered,
+                                    Consumer<ViewStatsDto> consumer) {
+        MapSqlParameterSource params = new MapSqlParameterSource();
+        String uriCondition = addUriCondition(params, uriFilter);
+        StringBuilder union = new StringBuilder();
+        for (int i = 0; i < parts.size(); i++) {
+            StatsRangePart part = parts.get(i);
+            if (i > 0) {
+                union.append(" UNION ALL ");
+            }
+            if (part.isRaw()) {
+                union.append(String.format(RAW_SQL, "COUNT(*)", i, part.isToInclusive() ? "<=" : "<", uriCondition));
+            } else {
+                union.append(String.format(ROLLUP_SQL, part.getGranularity().getTableName(), i, uriCondition));
+            }
+            params.addValue("from" + i, Timestamp.valueOf(part.getFrom()));
+            params.addValue("to" + i, Timestamp.valueOf(part.getTo()));
+        }
+        query(String.format(NAMED_RESULT_SQL, String.format(MERGE_SQL, union)), ordered, params, consumer);
+    }
+
+    public void streamUniqueStats(LocalDateTime start, LocalDateTime end, UriFilter uriFilter, boolean ordered,
+                                  Consumer<ViewStatsDto> consumer) {
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("from0", Timestamp.valueOf(start))
+                .addValue("to0", Timestamp.valueOf(end));
+        String uriCondition = addUriCondition(params, uriFilter);
+        query(String.format(NAMED_RESULT_SQL, String.format(RAW_SQL, "COUNT(DISTINCT ip)", 0, "<=", uriCondition)),
+                ordered, params, consumer);
+    }
+
+    private void query(String sql, boolean ordered, MapSqlParameterSource params, Consumer<ViewStatsDto> consumer) {
+        cursorTemplate.query(ordered ? sql + ORDER_BY_HITS_SQL : sql, params, (RowCallbackHandler) rs -> consumer.accept(ViewStatsDto.builder()
+                .app(rs.getString("app"))
+                .uri(rs.getString("uri"))
+                .hits(rs.getLong("hits"))
+                .build()));
+    }
+
+    private String addUriCondition(MapSqlParameterSource params, UriFilter uriFilter) {
+        if (uriFilter.isAll()) {
+            return "";
+        }
+        params.addValue("uriIds", uriFilter.getQueryUriIds());
+        return "AND uri_id IN (:uriIds) ";
+    }
+}
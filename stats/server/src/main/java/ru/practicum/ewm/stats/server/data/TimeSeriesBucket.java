@@ -0,0 +1,33 @@
+package ru.practicum.ewm.stats.server.data;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+
+@Getter
+@RequiredArgsConstructor
+public enum TimeSeriesBucket {
+    MINUTE("1m", "minute", ChronoUnit.MINUTES, RollupGranularity.MINUTE),
+    HOUR("1h", "hour", ChronoUnit.HOURS, RollupGranularity.HOUR),
+    DAY("1d", "day", ChronoUnit.DAYS, RollupGranularity.HOUR);
+
+    private final String code;
+    private final String truncUnit;
+    private final ChronoUnit unit;
+    private final RollupGranularity rollupGranularity;
+
+    public static TimeSeriesBucket fromCode(String code) {
+        for (TimeSeriesBucket bucket : values()) {
+            if (bucket.code.equals(code)) {
+                return bucket;
+            }
+        }
+        return null;
+    }
+
+    public LocalDateTime floor(LocalDateTime dateTime) {
+        return dateTime.truncatedTo(unit);
+    }
+}
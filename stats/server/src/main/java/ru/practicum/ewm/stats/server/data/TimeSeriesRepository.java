@@ -0,0 +1,64 @@
+package ru.practicum.ewm.stats.server.data;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
+
+@Repository
+@RequiredArgsConstructor
+public class TimeSeriesRepository {
+    private static final String MERGE_SQL = "SELECT bucket, SUM(hits) AS hits FROM (%s) p GROUP BY bucket";
+    private static final String RAW_SQL = "SELECT date_trunc('%1$s', hit_timestamp) AS bucket, %2$s AS hits " +
+            "FROM endpoints_hits " +
+            "WHERE uri_id IN (:uriIds) AND hit_timestamp >= :%3$s AND hit_timestamp %4$s :%5$s " +
+            "GROUP BY 1";
+    private static final String ROLLUP_SQL = "SELECT date_trunc('%1$s', bucket) AS bucket, SUM(hits) AS hits " +
+            "FROM %2$s " +
+            "WHERE uri_id IN (:uriIds) AND bucket >= :rollupFrom AND bucket < :rollupTo " +
+            "GROUP BY 1";
+
+    private final NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+
+    public Map<LocalDateTime, Long> findNotUniqueHits(TimeSeriesBucket bucket, LocalDateTime start, LocalDateTime end,
+                                                      UriFilter uriFilter) {
+        RollupGranularity granularity = bucket.getRollupGranularity();
+        LocalDateTime rollupFrom = granularity.ceil(start);
+        LocalDateTime rollupTo = granularity.floor(end);
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("uriIds", uriFilter.getQueryUriIds())
+                .addValue("start", Timestamp.valueOf(start))
+                .addValue("end", Timestamp.valueOf(end));
+        if (!rollupFrom.isBefore(rollupTo)) {
+            return query(String.format(RAW_SQL, bucket.getTruncUnit(), "COUNT(*)", "start", "<=", "end"), params);
+        }
+        params.addValue("rollupFrom", Timestamp.valueOf(rollupFrom))
+                .addValue("rollupTo", Timestamp.valueOf(rollupTo));
+        String union = String.format(RAW_SQL, bucket.getTruncUnit(), "COUNT(*)", "start", "<", "rollupFrom") +
+                " UNION ALL " + String.format(ROLLUP_SQL, bucket.getTruncUnit(), granularity.getTableName()) +
+                " UNION ALL " + String.format(RAW_SQL, bucket.getTruncUnit(), "COUNT(*)", "rollupTo", "<=", "end");
+        return query(String.format(MERGE_SQL, union), params);
+    }
+
+    public Map<LocalDateTime, Long> findUniqueHits(TimeSeriesBucket bucket, LocalDateTime start, LocalDateTime end,
+                                                   UriFilter uriFilter) {
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("uriIds", uriFilter.getQueryUriIds())
+                .addValue("start", Timestamp.valueOf(start))
+                .addValue("end", Timestamp.valueOf(end));
+        return query(String.format(RAW_SQL, bucket.getTruncUnit(), "COUNT(DISTINCT ip)", "start", "<=", "end"), params);
+    }
+
+    private Map<LocalDateTime, Long> query(String sql, MapSqlParameterSource params) {
+        Map<LocalDateTime, Long> hits = new HashMap<>();
+        namedParameterJdbcTemplate.query(sql, params, (RowCallbackHandler) rs ->
+                hits.put(rs.getTimestamp("bucket").toLocalDateTime(), rs.getLong("hits")));
+        return hits;
+    }
+}
@@ -0,0 +1,85 @@
+package ru.practicum.ewm.stats.server.data;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+import ru.practicum.ewm.stats.server.util.HitKeys;
+import ru.practicum.ewm.stats.server.util.SpaceSaving;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+
+@Repository
+public class TopRepository {
+    private static final String INSERT_EMPTY_SQL = "INSERT INTO endpoints_hits_hourly_top (bucket, summary) " +
+            "VALUES (?, ''::bytea) ON CONFLICT (bucket) DO NOTHING";
+    private static final String LOCK_SQL = "SELECT bucket, summary FROM endpoints_hits_hourly_top " +
+            "WHERE bucket IN (:buckets) ORDER BY bucket FOR UPDATE";
+    private static final String UPDATE_SQL = "UPDATE endpoints_hits_hourly_top SET summary = ? WHERE bucket = ?";
+    private static final String SELECT_SQL = "SELECT summary FROM endpoints_hits_hourly_top " +
+            "WHERE bucket >= :from AND bucket < :to";
+    private static final String DELETE_BEFORE_SQL = "DELETE FROM endpoints_hits_hourly_top WHERE bucket < ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+    private final int capacity;
+
+    public TopRepository(JdbcTemplate jdbcTemplate,
+                         NamedParameterJdbcTemplate namedParameterJdbcTemplate,
+                         @Value("${stats.top.capacity:1000}") int capacity) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.namedParameterJdbcTemplate = namedParameterJdbcTemplate;
+        this.capacity = capacity;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public void addHits(List<EndpointHit> hits) {
+        Map<LocalDateTime, Map<Long, Long>> countsByBucket = new TreeMap<>();
+        for (EndpointHit hit : hits) {
+            countsByBucket.computeIfAbsent(RollupGranularity.HOUR.floor(hit.getHitTimestamp()), key -> new HashMap<>())
+                    .merge(HitKeys.toKey(hit.getAppId(), hit.getUriId()), 1L, Long::sum);
+        }
+        List<LocalDateTime> buckets = new ArrayList<>(countsByBucket.keySet());
+        jdbcTemplate.batchUpdate(INSERT_EMPTY_SQL, buckets, buckets.size(),
+                (ps, bucket) -> ps.setTimestamp(1, Timestamp.valueOf(bucket)));
+        List<Timestamp> bucketParams = buckets.stream().map(Timestamp::valueOf).collect(Collectors.toList());
+        Map<LocalDateTime, SpaceSaving> summaries = new TreeMap<>();
+        namedParameterJdbcTemplate.query(LOCK_SQL, new MapSqlParameterSource("buckets", bucketParams), rs -> {
+            LocalDateTime bucket = rs.getTimestamp("bucket").toLocalDateTime();
+            SpaceSaving summary = SpaceSaving.fromBytes(rs.getBytes("summary"), capacity);
+            countsByBucket.get(bucket).forEach(summary::add);
+            summaries.put(bucket, summary);
+        });
+        List<Map.Entry<LocalDateTime, SpaceSaving>> rows = new ArrayList<>(summaries.entrySet());
+        jdbcTemplate.batchUpdate(UPDATE_SQL, rows, rows.size(), (ps, row) -> {
+            ps.setBytes(1, row.getValue().toBytes());
+            ps.setTimestamp(2, Timestamp.valueOf(row.getKey()));
+        });
+    }
+
+    public SpaceSaving mergeSummaries(LocalDateTime from, LocalDateTime to) {
+        SpaceSaving merged = new SpaceSaving(capacity);
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("from", Timestamp.valueOf(from))
+                .addValue("to", Timestamp.valueOf(to));
+        namedParameterJdbcTemplate.query(SELECT_SQL, params, rs -> {
+            merged.merge(SpaceSaving.fromBytes(rs.getBytes("summary"), capacity));
+        });
+        return merged;
+    }
+
+    public int deleteBefore(LocalDateTime cutoff) {
+        return jdbcTemplate.update(DELETE_BEFORE_SQL, Timestamp.valueOf(cutoff));
+    }
+}
@@ -0,0 +1,34 @@
+package ru.practicum.ewm.stats.server.data;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.Collections;
+import java.util.List;
+
+@Getter
+@AllArgsConstructor(access = AccessLevel.PRIVATE)
+public class UriFilter {
+    private static final UriFilter ALL = new UriFilter(true, Collections.emptyList());
+    private static final List<Integer> NO_URI_IDS = Collections.singletonList(-1);
+
+    private final boolean all;
+    private final List<Integer> uriIds;
+
+    public static UriFilter all() {
+        return ALL;
+    }
+
+    public static UriFilter of(List<Integer> uriIds) {
+        return new UriFilter(false, uriIds);
+    }
+
+    public boolean matchesNothing() {
+        return !all && uriIds.isEmpty();
+    }
+
+    public List<Integer> getQueryUriIds() {
+        return uriIds.isEmpty() ? NO_URI_IDS : uriIds;
+    }
+}
@@ -0,0 +1,9 @@
+package ru.practicum.ewm.stats.server.data;
+
+public interface VisitorProjection {
+    Integer getAppId();
+
+    Integer getUriId();
+
+    String getIp();
+}
@@ -0,0 +1,14 @@
+package ru.practicum.ewm.stats.server.logic;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import ru.practicum.ewm.stats.dto.StatsCbor;
+
+@Configuration
+public class CborConfig {
+    @Bean
+    public MappingJackson2CborHttpMessageConverter cborHttpMessageConverter() {
+        return new MappingJackson2CborHttpMessageConverter(StatsCbor.createMapper());
+    }
+}
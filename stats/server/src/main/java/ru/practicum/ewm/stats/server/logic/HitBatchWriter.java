@@ -0,0 +1,43 @@
+package ru.practicum.ewm.stats.server.logic;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import ru.practicum.ewm.stats.server.data.EndpointHit;
+import ru.practicum.ewm.stats.server.data.EndpointHitBatchRepository;
+import ru.practicum.ewm.stats.server.data.RollupRepository;
+import ru.practicum.ewm.stats.server.data.SketchRepository;
+import ru.practicum.ewm.stats.server.data.TopRepository;
+
+import java.util.List;
+
+@Service
+@ConditionalOnProperty(name = "stats.storage.engine", havingValue = "jpa", matchIfMissing = true)
+@RequiredArgsConstructor
+public class HitBatchWriter {
+    private final EndpointHitBatchRepository endpointHitBatchRepository;
+    private final RollupRepository rollupRepository;
+    private final SketchRepository sketchRepository;
+    private final TopRepository topRepository;
+    private final HotWindowCounters hotWindowCounters;
+
+    @Transactional
+    public void write(List<EndpointHit> hits) {
+        if (hits.isEmpty()) {
+            return;
+        }
+        endpointHitBatchRepository.insertAll(hits);
+        rollupRepository.addHits(hits);
+        sketchRepository.addHits(hits);
+        topRepository.addHits(hits);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                hotWindowCounters.record(hits);
+            }
+        });
+    }
+}
@@ -0,0 +1,172 @@
+package ru.practicum.ewm.stats.server.logic;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import ru.practicum.ewm.stats.server.data.EndpointHit;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Suppresses repeated (app, uri, ip) hits within a time window using two rotating Bloom filters:
+ * a hit is a duplicate if the current or the previous generation has seen it, so repeats are
+ * collapsed for at least one window and at most two. Checking does not mark a hit; callers mark hits
+ * with {@link #markSeen} only once they were accepted, so a hit whose write failed is not suppressed
+ * when the client retries it. Bits are set with CAS on a shared {@link AtomicLongArray}, so
+ * concurrent ingest threads never lock. A false positive drops a genuine hit with probability
+ * {@code stats.dedup.false-positive-rate}.
+ */
+@Component
+public class HitDeduplicator {
+    private final boolean enabled;
+    private final long windowNanos;
+    private final int bits;
+    private final int hashes;
+    private final Counter suppressedCounter;
+    private final AtomicLong nextRotation;
+    private volatile Generations generations;
+
+    public HitDeduplicator(MeterRegistry meterRegistry,
+                           @Value("${stats.dedup.enabled:false}") boolean enabled,
+                           @Value("${stats.dedup.window-seconds:10}") long windowSeconds,
+                           @Value("${stats.dedup.expected-hits:1000000}") long expectedHits,
+                           @Value("${stats.dedup.false-positive-rate:0.001}") double falsePositiveRate) {
+        this.enabled = enabled;
+        this.windowNanos = TimeUnit.SECONDS.toNanos(windowSeconds);
+        long optimalBits = (long) Math.ceil(-expectedHits * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+        this.bits = (int) Math.min(Integer.MAX_VALUE - 63, (optimalBits + 63) / 64 * 64);
+        this.hashes = Math.max(1, (int) Math.round((double) bits / expectedHits * Math.log(2)));
+        this.suppressedCounter = Counter.builder("stats.ingest.suppressed")
+                .description("Hits dropped as repeats of the same app, uri and ip within the dedup window")
+                .register(meterRegistry);
+        this.nextRotation = new AtomicLong(System.nanoTime() + windowNanos);
+        if (enabled) {
+            this.generations = new Generations(new BloomBits(bits), new BloomBits(bits));
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public boolean isDuplicate(EndpointHit hit) {
+        if (!enabled) {
+            return false;
+        }
+        rotateIfDue();
+        long hash = hash(hit);
+        Generations current = generations;
+        if (current.recent.contains(hash, hashes) || current.previous.contains(hash, hashes)) {
+            suppressedCounter.increment();
+            return true;
+        }
+        return false;
+    }
+
+    public void markSeen(List<EndpointHit> hits) {
+        if (!enabled) {
+            return;
+        }
+        rotateIfDue();
+        BloomBits recent = generations.recent;
+        for (EndpointHit hit : hits) {
+            recent.put(hash(hit), hashes);
+        }
+    }
+
+    private void rotateIfDue() {
+        long now = System.nanoTime();
+        long due = nextRotation.get();
+        if (now - due < 0 || !nextRotation.compareAndSet(due, now + windowNanos)) {
+            return;
+        }
+        Generations old = generations;
+        old.previous.clear();
+        if (now - due >= windowNanos) {
+            old.recent.clear();
+        }
+        generations = new Generations(old.previous, old.recent);
+    }
+
+    private static long hash(EndpointHit hit) {
+        long hash = 0xcbf29ce484222325L;
+        hash = hash(hash, hit.getApp());
+        hash = hash(hash, hit.getUri());
+        hash = hash(hash, hit.getIp());
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+
+    private static long hash(long hash, String value) {
+        for (int i = 0; i < value.length(); i++) {
+            hash ^= value.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        hash ^= value.length();
+        hash *= 0x100000001b3L;
+        return hash;
+    }
+
+    @RequiredArgsConstructor
+    private static class Generations {
+        private final BloomBits recent;
+        private final BloomBits previous;
+    }
+
+    private static class BloomBits {
+        private final AtomicLongArray words;
+        private final int bits;
+
+        BloomBits(int bits) {
+            this.words = new AtomicLongArray(bits / 64);
+            this.bits = bits;
+        }
+
+        boolean put(long hash, int hashes) {
+            int first = (int) hash;
+            int second = (int) (hash >>> 32);
+            boolean present = true;
+            for (int i = 0; i < hashes; i++) {
+                int bit = ((first + i * second) & Integer.MAX_VALUE) % bits;
+                long mask = 1L << bit;
+                int word = bit >>> 6;
+                long value = words.get(word);
+                while ((value & mask) == 0) {
+                    if (words.compareAndSet(word, value, value | mask)) {
+                        present = false;
+                        break;
+                    }
+                    value = words.get(word);
+                }
+            }
+            return present;
+        }
+
+        boolean contains(long hash, int hashes) {
+            int first = (int) hash;
+            int second = (int) (hash >>> 32);
+            for (int i = 0; i < hashes; i++) {
+                int bit = ((first + i * second) & Integer.MAX_VALUE) % bits;
+                if ((words.get(bit >>> 6) & 1L << bit) == 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        void clear() {
+            for (int i = 0; i < words.length(); i++) {
+                words.set(i, 0);
+            }
+        }
+    }
+}
@@ -0,0 +1,208 @@
+package ru.practicum.ewm.stats.server.logic;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import ru.practicum.ewm.stats.server.data.EndpointHit;
+import ru.practicum.ewm.stats.server.data.EndpointHitMapper;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Buffers accepted hits and writes them in batches on one writer thread. A batch that fails to write is
+ * retried with exponential backoff; after the last attempt it is appended to the dead-letter file as
+ * newline-delimited hits, which can be replayed through POST /hits.
+ */
+@Slf4j
+@Component
+public class HitIngestPipeline {
+    private final StatsQueryCache statsQueryCache;
+    private final ObjectMapper objectMapper;
+    private final BlockingQueue<EndpointHit> buffer;
+    private final int batchSize;
+    private final long flushIntervalNanos;
+    private final long retryAfterSeconds;
+    private final long shutdownTimeoutMs;
+    private final int flushAttempts;
+    private final long flushBackoffMs;
+    private final Path deadLetterFile;
+    private final Timer flushTimer;
+    private final Counter overflowCounter;
+    private final Counter flushErrorCounter;
+    private final Counter flushRetryCounter;
+    private final Counter deadLetterCounter;
+    private final Thread writerThread;
+    private volatile boolean running = true;
+
+    public HitIngestPipeline(StatsQueryCache statsQueryCache,
+                             ObjectMapper objectMapper,
+                             MeterRegistry meterRegistry,
+                             @Value("${stats.ingest.buffer-capacity:50000}") int bufferCapacity,
+                             @Value("${stats.ingest.batch-size:500}") int batchSize,
+                             @Value("${stats.ingest.flush-interval-ms:50}") long flushIntervalMs,
+                             @Value("${stats.ingest.retry-after-seconds:1}") long retryAfterSeconds,
+                             @Value("${stats.ingest.shutdown-timeout-ms:10000}") long shutdownTimeoutMs,
+                             @Value("${stats.ingest.flush-attempts:5}") int flushAttempts,
+                             @Value("${stats.ingest.flush-backoff-ms:100}") long flushBackoffMs,
+                             @Value("${stats.ingest.dead-letter-file:stats-dead-letter.ndjson}") String deadLetterFile) {
+        this.statsQueryCache = statsQueryCache;
+        this.objectMapper = objectMapper;
+        this.buffer = new ArrayBlockingQueue<>(bufferCapacity);
+        this.batchSize = batchSize;
+        this.flushIntervalNanos = TimeUnit.MILLISECONDS.toNanos(flushIntervalMs);
+        this.retryAfterSeconds = retryAfterSeconds;
+        this.shutdownTimeoutMs = shutdownTimeoutMs;
+        this.flushAttempts = Math.max(1, flushAttempts);
+        this.flushBackoffMs = flushBackoffMs;
+        this.deadLetterFile = Paths.get(deadLetterFile);
+        Gauge.builder("stats.ingest.buffer.depth", buffer, BlockingQueue::size)
+                .description("Hits accepted but not yet written to the database")
+                .register(meterRegistry);
+        this.flushTimer = Timer.builder("stats.ingest.flush")
+                .description("Time spent writing one batch of hits")
+                .register(meterRegistry);
+        this.overflowCounter = Counter.builder("stats.ingest.dropped")
+                .tag("reason", "overflow")
+                .description("Hits rejected or lost by the ingest pipeline")
+                .register(meterRegistry);
+        this.flushErrorCounter = Counter.builder("stats.ingest.dropped")
+                .tag("reason", "flush_error")
+                .description("Hits rejected or lost by the ingest pipeline")
+                .register(meterRegistry);
+        this.flushRetryCounter = Counter.builder("stats.ingest.flush.retries")
+                .description("Failed batch writes retried by the ingest pipeline")
+                .register(meterRegistry);
+        this.deadLetterCounter = Counter.builder("stats.ingest.dead_lettered")
+                .description("Hits written to the dead-letter file after every write attempt failed")
+                .register(meterRegistry);
+        this.writerThread = new Thread(this::runWriter, "stats-ingest-writer");
+        this.writerThread.setDaemon(true);
+    }
+
+    @PostConstruct
+    private void start() {
+        writerThread.start();
+    }
+
+    public void submit(EndpointHit hit) {
+        if (!running || !buffer.offer(hit)) {
+            overflowCounter.increment();
+            throw new IngestRejectedException("Ingest buffer is full", retryAfterSeconds);
+        }
+    }
+
+    public int getBufferDepth() {
+        return buffer.size();
+    }
+
+    @PreDestroy
+    private void shutdown() throws InterruptedException {
+        running = false;
+        writerThread.join(shutdownTimeoutMs);
+        if (writerThread.isAlive()) {
+            log.warn("Ingest writer did not drain within {} ms, {} hits left in buffer", shutdownTimeoutMs, buffer.size());
+            writerThread.interrupt();
+        }
+    }
+
+    private void runWriter() {
+        List<EndpointHit> batch = new ArrayList<>(batchSize);
+        while (running || !buffer.isEmpty()) {
+            try {
+                collectBatch(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                flush(batch);
+                return;
+            }
+            flush(batch);
+        }
+    }
+
+    private void collectBatch(List<EndpointHit> batch) throws InterruptedException {
+        EndpointHit first = buffer.poll(flushIntervalNanos, TimeUnit.NANOSECONDS);
+        if (first == null) {
+            return;
+        }
+        batch.add(first);
+        long deadline = System.nanoTime() + flushIntervalNanos;
+        while (batch.size() < batchSize) {
+            buffer.drainTo(batch, batchSize - batch.size());
+            long remaining = deadline - System.nanoTime();
+            if (batch.size() >= batchSize || remaining <= 0) {
+                return;
+            }
+            EndpointHit next = buffer.poll(remaining, TimeUnit.NANOSECONDS);
+            if (next == null) {
+                return;
+            }
+            batch.add(next);
+        }
+    }
+
+    private void flush(List<EndpointHit> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        try {
+            for (int attempt = 1; ; attempt++) {
+                try {
+                    flushTimer.record(() -> statsQueryCache.append(batch));
+                    return;
+                } catch (RuntimeException e) {
+                    if (attempt >= flushAttempts || !backOff(attempt)) {
+                        log.error("Failed to write a batch of {} hits after {} attempts", batch.size(), attempt, e);
+                        deadLetter(batch);
+                        return;
+                    }
+                    log.warn("Failed to write a batch of {} hits, attempt {} of {}: {}", batch.size(), attempt, flushAttempts, e.getMessage());
+                    flushRetryCounter.increment();
+                }
+            }
+        } finally {
+            batch.clear();
+        }
+    }
+
+    private boolean backOff(int attempt) {
+        try {
+            Thread.sleep(flushBackoffMs << Math.min(attempt - 1, 10));
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private void deadLetter(List<EndpointHit> batch) {
+        try (BufferedWriter writer = Files.newBufferedWriter(deadLetterFile, StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+            for (EndpointHit hit : batch) {
+                writer.write(objectMapper.writeValueAsString(EndpointHitMapper.INSTANCE.toDto(hit)));
+                writer.newLine();
+            }
+            deadLetterCounter.increment(batch.size());
+        } catch (IOException e) {
+            log.error("Failed to dead-letter a batch of {} hits to {}", batch.size(), deadLetterFile, e);
+            flushErrorCounter.increment(batch.size());
+        }
+    }
+}
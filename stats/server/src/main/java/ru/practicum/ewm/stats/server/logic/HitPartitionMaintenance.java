@@ -0,0 +1,109 @@
+package ru.practicum.ewm.stats.server.logic;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import ru.practicum.ewm.stats.server.data.HitPartition;
+import ru.practicum.ewm.stats.server.data.HitPartitionRepository;
+import ru.practicum.ewm.stats.server.data.PartitionInterval;
+import ru.practicum.ewm.stats.server.data.RollupGranularity;
+import ru.practicum.ewm.stats.server.data.RollupRepository;
+import ru.practicum.ewm.stats.server.data.SketchRepository;
+import ru.practicum.ewm.stats.server.data.TopRepository;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.TreeSet;
+
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "stats.storage.engine", havingValue = "jpa", matchIfMissing = true)
+public class HitPartitionMaintenance {
+    private final HitPartitionRepository hitPartitionRepository;
+    private final RollupRepository rollupRepository;
+    private final SketchRepository sketchRepository;
+    private final TopRepository topRepository;
+    private final StatsQueryCache statsQueryCache;
+    private final PartitionInterval interval;
+    private final int partitionsAhead;
+    private final int retentionDays;
+
+    public HitPartitionMaintenance(HitPartitionRepository hitPartitionRepository,
+                                   RollupRepository rollupRepository,
+                                   SketchRepository sketchRepository,
+                                   TopRepository topRepository,
+                                   StatsQueryCache statsQueryCache,
+                                   @Value("${stats.partition.interval:DAY}") PartitionInterval interval,
+                                   @Value("${stats.partition.ahead:7}") int partitionsAhead,
+                                   @Value("${stats.partition.retention-days:0}") int retentionDays) {
+        this.hitPartitionRepository = hitPartitionRepository;
+        this.rollupRepository = rollupRepository;
+        this.sketchRepository = sketchRepository;
+        this.topRepository = topRepository;
+        this.statsQueryCache = statsQueryCache;
+        this.interval = interval;
+        this.partitionsAhead = partitionsAhead;
+        this.retentionDays = retentionDays;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(cron = "${stats.partition.maintenance-cron:0 5 * * * *}")
+    public synchronized void maintain() {
+        LocalDate today = LocalDate.now();
+        LocalDate cutoff = retentionDays > 0 ? today.minusDays(retentionDays) : LocalDate.EPOCH;
+        List<HitPartition> partitions = hitPartitionRepository.findAll();
+        TreeSet<LocalDate> periods = new TreeSet<>();
+        LocalDate from = interval.periodStart(today);
+        for (int i = 0; i <= partitionsAhead; i++) {
+            periods.add(from);
+            from = interval.next(from);
+        }
+        for (LocalDate day : hitPartitionRepository.findDefaultDays(cutoff)) {
+            periods.add(interval.periodStart(day));
+        }
+        for (LocalDate periodStart : periods) {
+            HitPartition partition = new HitPartition(periodStart, interval.next(periodStart));
+            if (partitions.stream().anyMatch(partition::overlaps)) {
+                continue;
+            }
+            try {
+                hitPartitionRepository.create(partition);
+                partitions.add(partition);
+                log.info("Created hit partition {}", partition.getName());
+            } catch (RuntimeException e) {
+                log.error("Failed to create hit partition {}", partition.getName(), e);
+            }
+        }
+        if (retentionDays <= 0) {
+            return;
+        }
+        for (HitPartition partition : partitions) {
+            if (!partition.getTo().isAfter(cutoff)) {
+                hitPartitionRepository.drop(partition);
+                log.info("Dropped hit partition {} past the {} day retention", partition.getName(), retentionDays);
+            }
+        }
+        expireBefore(cutoff);
+        statsQueryCache.invalidateBefore(cutoff.atStartOfDay());
+    }
+
+    private void expireBefore(LocalDate cutoff) {
+        LocalDateTime bucket = cutoff.atStartOfDay();
+        int defaultHits = hitPartitionRepository.deleteDefaultBefore(cutoff);
+        int rollups = 0;
+        for (RollupGranularity granularity : RollupGranularity.values()) {
+            rollups += rollupRepository.deleteBefore(granularity, bucket);
+        }
+        int sketches = sketchRepository.deleteBefore(bucket);
+        int summaries = topRepository.deleteBefore(bucket);
+        if (defaultHits + rollups + sketches + summaries > 0) {
+            log.info("Expired {} default partition hits, {} rollups, {} sketches and {} top summaries before {}",
+                    defaultHits, rollups, sketches, summaries, cutoff);
+        }
+    }
+}
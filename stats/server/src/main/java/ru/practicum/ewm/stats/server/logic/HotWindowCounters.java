@@ -0,0 +1,223 @@
+package ru.practicum.ewm.stats.server.logic;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import ru.practicum.ewm.stats.server.data.EndpointHit;
+import ru.practicum.ewm.stats.server.data.UriFilter;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Per-minute hit counters for the last {@code stats.hot-window.minutes}, fed with committed hits of this node.
+ * Each slot packs its minute and count into one long, so a slot left over from an older minute reads as zero.
+ * Minutes for which a hit could have been missed (before startup, uri over the cap, far-future timestamp)
+ * are reported as not covered and must be read from the database.
+ */
+@Component
+@ConditionalOnProperty(name = "stats.storage.engine", havingValue = "jpa", matchIfMissing = true)
+public class HotWindowCounters {
+    private static final int COUNT_BITS = 32;
+    private static final long COUNT_MASK = (1L << COUNT_BITS) - 1;
+    private static final long MAX_FUTURE_MINUTES = 1;
+    private static final long READ_MARGIN_MINUTES = 2;
+
+    private final boolean enabled;
+    private final int windowMinutes;
+    private final int maxUris;
+    private final ConcurrentMap<Integer, UriCounters> countersByUri = new ConcurrentHashMap<>();
+    private final AtomicInteger trackedUris = new AtomicInteger();
+    private final AtomicLong coveredFrom;
+    private final AtomicLong lastSweepMinute = new AtomicLong(Long.MIN_VALUE);
+
+    public HotWindowCounters(MeterRegistry meterRegistry,
+                             @Value("${stats.hot-window.enabled:true}") boolean enabled,
+                             @Value("${stats.hot-window.minutes:1440}") int windowMinutes,
+                             @Value("${stats.hot-window.max-uris:1000}") int maxUris) {
+        this.enabled = enabled;
+        this.windowMinutes = windowMinutes;
+        this.maxUris = maxUris;
+        this.coveredFrom = new AtomicLong(currentMinute() + 1);
+        Gauge.builder("stats.hot-window.uris", trackedUris, AtomicInteger::get)
+                .description("URIs with in-memory per-minute counters")
+                .register(meterRegistry);
+    }
+
+    public void record(List<EndpointHit> hits) {
+        if (!enabled) {
+            return;
+        }
+        long now = currentMinute();
+        for (EndpointHit hit : hits) {
+            record(hit.getAppId(), hit.getUriId(), toMinute(hit.getHitTimestamp()), now);
+        }
+    }
+
+    public LocalDateTime getCoveredFrom(UriFilter uriFilter) {
+        if (!enabled) {
+            return LocalDateTime.MAX;
+        }
+        long from = currentMinute() - windowMinutes + READ_MARGIN_MINUTES;
+        if (uriFilter.isAll()) {
+            from = Math.max(from, coveredFrom.get());
+        } else {
+            for (Integer uriId : uriFilter.getUriIds()) {
+                UriCounters counters = countersByUri.get(uriId);
+                from = Math.max(from, counters != null ? counters.coveredFrom.get() : coveredFrom.get());
+            }
+        }
+        return toDateTime(from);
+    }
+
+    public LocalDateTime getCoveredTo() {
+        return toDateTime(currentMinute() + 1);
+    }
+
+    public void addHits(ViewStatsAccumulator accumulator, LocalDateTime from, LocalDateTime to, UriFilter uriFilter) {
+        long fromMinute = toMinute(from);
+        long toMinute = toMinute(to);
+        if (uriFilter.isAll()) {
+            countersByUri.forEach((uriId, counters) -> counters.addHits(accumulator, uriId, fromMinute, toMinute));
+            return;
+        }
+        for (Integer uriId : uriFilter.getUriIds()) {
+            UriCounters counters = countersByUri.get(uriId);
+            if (counters != null) {
+                counters.addHits(accumulator, uriId, fromMinute, toMinute);
+            }
+        }
+    }
+
+    private void record(int appId, int uriId, long minute, long now) {
+        if (minute <= now - windowMinutes) {
+            return;
+        }
+        UriCounters counters = countersByUri.get(uriId);
+        if (counters == null) {
+            counters = admit(uriId, now);
+        }
+        if (counters == null || minute > now + MAX_FUTURE_MINUTES) {
+            markUncovered(uriId, minute);
+            return;
+        }
+        counters.increment(appId, minute);
+        if (countersByUri.get(uriId) != counters) {
+            markUncovered(uriId, minute);
+        }
+    }
+
+    private UriCounters admit(int uriId, long now) {
+        if (!reserve() && !(sweepIdle(now) && reserve())) {
+            return null;
+        }
+        UriCounters created = new UriCounters(coveredFrom.get());
+        UriCounters existing = countersByUri.putIfAbsent(uriId, created);
+        if (existing != null) {
+            trackedUris.decrementAndGet();
+            return existing;
+        }
+        created.coverFrom(coveredFrom.get());
+        return created;
+    }
+
+    private boolean reserve() {
+        return trackedUris.getAndUpdate(size -> size < maxUris ? size + 1 : size) < maxUris;
+    }
+
+    private boolean sweepIdle(long now) {
+        long lastSweep = lastSweepMinute.get();
+        if (lastSweep >= now || !lastSweepMinute.compareAndSet(lastSweep, now)) {
+            return false;
+        }
+        int before = trackedUris.get();
+        countersByUri.forEach((uriId, counters) -> {
+            if (counters.lastMinute.get() <= now - windowMinutes && countersByUri.remove(uriId, counters)) {
+                trackedUris.decrementAndGet();
+            }
+        });
+        return trackedUris.get() < before;
+    }
+
+    private void markUncovered(int uriId, long minute) {
+        coveredFrom.accumulateAndGet(minute + 1, Math::max);
+        UriCounters counters = countersByUri.get(uriId);
+        if (counters != null) {
+            counters.coverFrom(minute + 1);
+        }
+    }
+
+    private static long currentMinute() {
+        return toMinute(LocalDateTime.now());
+    }
+
+    private static long toMinute(LocalDateTime dateTime) {
+        return Math.floorDiv(dateTime.toEpochSecond(ZoneOffset.UTC), 60);
+    }
+
+    private static LocalDateTime toDateTime(long minute) {
+        return LocalDateTime.ofEpochSecond(minute * 60, 0, ZoneOffset.UTC).truncatedTo(ChronoUnit.MINUTES);
+    }
+
+    private class UriCounters {
+        private final ConcurrentMap<Integer, AtomicLongArray> slotsByApp = new ConcurrentHashMap<>();
+        private final AtomicLong coveredFrom;
+        private final AtomicLong lastMinute = new AtomicLong(Long.MIN_VALUE);
+
+        UriCounters(long coveredFrom) {
+            this.coveredFrom = new AtomicLong(coveredFrom);
+        }
+
+        void coverFrom(long minute) {
+            coveredFrom.accumulateAndGet(minute, Math::max);
+        }
+
+        void increment(int appId, long minute) {
+            AtomicLongArray slots = slotsByApp.computeIfAbsent(appId, key -> new AtomicLongArray(windowMinutes));
+            int index = (int) Math.floorMod(minute, (long) windowMinutes);
+            while (true) {
+                long slot = slots.get(index);
+                long slotMinute = slot >>> COUNT_BITS;
+                if (slotMinute > minute) {
+                    return;
+                }
+                long next = slotMinute == minute ? slot + 1 : minute << COUNT_BITS | 1;
+                if (slots.compareAndSet(index, slot, next)) {
+                    break;
+                }
+            }
+            if (minute > lastMinute.get()) {
+                lastMinute.accumulateAndGet(minute, Math::max);
+            }
+        }
+
+        void addHits(ViewStatsAccumulator accumulator, int uriId, long fromMinute, long toMinute) {
+            slotsByApp.forEach((appId, slots) -> {
+                long hits = sum(slots, fromMinute, toMinute);
+                if (hits > 0) {
+                    accumulator.add(appId, uriId, hits);
+                }
+            });
+        }
+
+        private long sum(AtomicLongArray slots, long fromMinute, long toMinute) {
+            long hits = 0;
+            for (long minute = fromMinute; minute < toMinute; minute++) {
+                long slot = slots.get((int) Math.floorMod(minute, (long) windowMinutes));
+                if (slot >>> COUNT_BITS == minute) {
+                    hits += slot & COUNT_MASK;
+                }
+            }
+            return hits;
+        }
+    }
+}
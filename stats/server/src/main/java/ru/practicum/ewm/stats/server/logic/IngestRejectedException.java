@@ -0,0 +1,13 @@
+package ru.practicum.ewm.stats.server.logic;
+
+import lombok.Getter;
+
+@Getter
+public class IngestRejectedException extends RuntimeException {
+    private final long retryAfterSeconds;
+
+    public IngestRejectedException(String message, long retryAfterSeconds) {
+        super(message);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+}
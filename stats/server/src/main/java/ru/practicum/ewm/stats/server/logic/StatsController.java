@@ -1,38 +1,147 @@
 package ru.practicum.ewm.stats.server.logic;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.RequiredArgsConstructor;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import ru.practicum.ewm.stats.dto.EndpointHitDto;
+import ru.practicum.ewm.stats.dto.StatsQueryDto;
+import ru.practicum.ewm.stats.dto.TimeSeriesPointDto;
 import ru.practicum.ewm.stats.dto.ViewStatsDto;
 
+import javax.validation.ConstraintViolationException;
 import javax.validation.Valid;
+import javax.validation.constraints.Positive;
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.time.LocalDateTime;
 import java.util.List;
 
+@Validated
 @RestController
 @RequiredArgsConstructor
 public class StatsController {
     private static final String DATETIME_FORMAT = "yyyy-MM-dd HH:mm:ss";
+    private static final MediaType NDJSON = MediaType.parseMediaType("application/x-ndjson");
 
     private final StatsService statsService;
+    private final ObjectMapper objectMapper;
 
     @GetMapping("/stats")
     public List<ViewStatsDto> getStats(@RequestParam @DateTimeFormat(pattern = DATETIME_FORMAT) LocalDateTime start,
                                        @RequestParam @DateTimeFormat(pattern = DATETIME_FORMAT) LocalDateTime end,
                                        @RequestParam(required = false) List<String> uris,
-                                       @RequestParam(defaultValue = "false") Boolean unique) {
+                                       @RequestParam(defaultValue = "false") Boolean unique,
+                                       @RequestParam(defaultValue = "false") Boolean approximate) {
+        validateRange(start, end);
+        return statsService.getStats(start, end, uris, unique, approximate);
+    }
+
+    @PostMapping("/stats/query")
+    public List<ViewStatsDto> queryStats(@Valid @RequestBody StatsQueryDto statsQueryDto) {
+        validateRange(statsQueryDto.getStart(), statsQueryDto.getEnd());
+        return statsService.getStats(statsQueryDto.getStart(), statsQueryDto.getEnd(), statsQueryDto.getUris(),
+                Boolean.TRUE.equals(statsQueryDto.getUnique()), Boolean.TRUE.equals(statsQueryDto.getApproximate()));
+    }
+
+    @GetMapping("/stats/top")
+    public List<ViewStatsDto> getTopStats(@RequestParam @DateTimeFormat(pattern = DATETIME_FORMAT) LocalDateTime start,
+                                          @RequestParam @DateTimeFormat(pattern = DATETIME_FORMAT) LocalDateTime end,
+                                          @RequestParam(defaultValue = "10") @Positive Integer limit,
+                                          @RequestParam(defaultValue = "false") Boolean unique) {
+        validateRange(start, end);
+        return statsService.getTopStats(start, end, limit, unique);
+    }
+
+    @GetMapping("/stats/timeseries")
+    public List<TimeSeriesPointDto> getTimeSeries(@RequestParam String uri,
+                                                  @RequestParam @DateTimeFormat(pattern = DATETIME_FORMAT) LocalDateTime start,
+                                                  @RequestParam @DateTimeFormat(pattern = DATETIME_FORMAT) LocalDateTime end,
+                                                  @RequestParam String bucket,
+                                                  @RequestParam(defaultValue = "false") Boolean unique) {
+        validateRange(start, end);
+        return statsService.getTimeSeries(uri, start, end, bucket, unique);
+    }
+
+    /**
+     * Streams the rows of {@code GET /stats} as a JSON array or NDJSON, in the order the database emits them.
+     * {@code ordered=true} sorts them by hits, which needs the whole range aggregated before the first byte is
+     * written. Either way the database still groups the range before the first row.
+     */
+    @GetMapping(value = "/stats", params = "stream=true")
+    public ResponseEntity<StreamingResponseBody> streamStats(
+            @RequestParam @DateTimeFormat(pattern = DATETIME_FORMAT) LocalDateTime start,
+            @RequestParam @DateTimeFormat(pattern = DATETIME_FORMAT) LocalDateTime end,
+            @RequestParam(required = false) List<String> uris,
+            @RequestParam(defaultValue = "false") Boolean unique,
+            @RequestParam(defaultValue = "false") Boolean approximate,
+            @RequestParam(defaultValue = "false") Boolean ordered,
+            @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept) {
+        validateRange(start, end);
+        boolean ndjson = accept != null && MediaType.parseMediaTypes(accept).stream().anyMatch(NDJSON::equalsTypeAndSubtype);
+        StreamingResponseBody body = outputStream -> {
+            try (JsonGenerator generator = objectMapper.getFactory().createGenerator(outputStream)) {
+                generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+                if (ndjson) {
+                    generator.setRootValueSeparator(null);
+                } else {
+                    generator.writeStartArray();
+                }
+                statsService.streamStats(start, end, uris, unique, approximate, ordered, viewStatsDto -> {
+                    try {
+                        generator.writeObject(viewStatsDto);
+                        if (ndjson) {
+                            generator.writeRaw('\n');
+                        }
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+                if (!ndjson) {
+                    generator.writeEndArray();
+                }
+            }
+        };
+        return ResponseEntity.ok()
+                .contentType(ndjson ? NDJSON : MediaType.APPLICATION_JSON)
+                .body(body);
+    }
+
+    @PostMapping("/hit")
+    public ResponseEntity<Void> createEndpointHit(@Valid @RequestBody EndpointHitDto endpointHitDto) {
+        boolean written = statsService.createEndpointHit(endpointHitDto);
+        return ResponseEntity.status(written ? HttpStatus.CREATED : HttpStatus.ACCEPTED).build();
+    }
+
+    @PostMapping("/hits")
+    @ResponseStatus(HttpStatus.CREATED)
+    public void createEndpointHits(@RequestBody List<@Valid EndpointHitDto> endpointHitDtos) {
+        statsService.createEndpointHits(endpointHitDtos);
+    }
+
+    private void validateRange(LocalDateTime start, LocalDateTime end) {
         if (!end.isAfter(start)) {
             throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid date range");
         }
-        return statsService.getStats(start, end, uris, unique);
     }
 
-    @PostMapping("/hit")
-    @ResponseStatus(HttpStatus.CREATED)
-    public void createEndpointHit(@Valid @RequestBody EndpointHitDto endpointHitDto) {
-        statsService.createEndpointHit(endpointHitDto);
+    @ExceptionHandler
+    public ResponseEntity<String> handleConstraintViolation(ConstraintViolationException e) {
+        return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(e.getMessage());
+    }
+
+    @ExceptionHandler
+    public ResponseEntity<Void> handleIngestRejected(IngestRejectedException e) {
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfterSeconds()))
+                .build();
     }
 }
\ No newline at end of file
@@ -0,0 +1,69 @@
+package ru.practicum.ewm.stats.server.logic;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+@Component
+public class StatsMetrics {
+    private static final String[] URI_CLASSES = {"all", "1", "2-10", "11+"};
+
+    private final Timer[][] queryTimers = new Timer[2][URI_CLASSES.length];
+    private final DistributionSummary queryResultRows;
+    private final Timer hitTimer;
+    private final Timer hitsTimer;
+
+    public StatsMetrics(MeterRegistry meterRegistry) {
+        for (int unique = 0; unique < 2; unique++) {
+            for (int uriClass = 0; uriClass < URI_CLASSES.length; uriClass++) {
+                queryTimers[unique][uriClass] = Timer.builder("stats.query")
+                        .tag("unique", String.valueOf(unique == 1))
+                        .tag("uris", URI_CLASSES[uriClass])
+                        .description("Time spent answering GET /stats")
+                        .publishPercentileHistogram()
+                        .register(meterRegistry);
+            }
+        }
+        this.queryResultRows = DistributionSummary.builder("stats.query.result.rows")
+                .description("App and uri rows returned in one GET /stats response")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        this.hitTimer = Timer.builder("stats.ingest.hit")
+                .description("Time spent handling POST /hit; with async ingest it excludes the database write")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        this.hitsTimer = Timer.builder("stats.ingest.hits")
+                .description("Time spent handling POST /hits, including the database write")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+
+    public Timer queryTimer(boolean unique, List<String> uris) {
+        return queryTimers[unique ? 1 : 0][uriClass(uris)];
+    }
+
+    public void recordQueryResultRows(int rows) {
+        queryResultRows.record(rows);
+    }
+
+    public Timer hitTimer() {
+        return hitTimer;
+    }
+
+    public Timer hitsTimer() {
+        return hitsTimer;
+    }
+
+    private static int uriClass(List<String> uris) {
+        if (uris == null || uris.isEmpty()) {
+            return 0;
+        }
+        if (uris.size() == 1) {
+            return 1;
+        }
+        return uris.size() <= 10 ? 2 : 3;
+    }
+}
@@ -0,0 +1,405 @@
+package ru.practicum.ewm.stats.server.logic;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import ru.practicum.ewm.stats.dto.ViewStatsDto;
+import ru.practicum.ewm.stats.server.data.EndpointHit;
+import ru.practicum.ewm.stats.server.storage.StatsQuery;
+import ru.practicum.ewm.stats.server.storage.StatsStorage;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Caches /stats results by normalized query. Hits appended after a result was cached are added to
+ * non-unique entries whose range and uris they match; unique entries they match are dropped, because
+ * distinct counts are not additive. A computed result is only cached if no append matching its range
+ * and uris overlapped the computation, so an entry never counts a hit twice or misses one, while
+ * appends for other uris or later times do not keep it out of the cache.
+ * <p>
+ * Entries are indexed by uri, and entries over all uris by the end of their range, so an appended hit
+ * only visits entries it can fall into. Counts are updated under the lock of each entry. When stored
+ * hits are deleted by retention, {@link #invalidateBefore} drops every entry whose range starts before
+ * the cutoff.
+ */
+@Component
+public class StatsQueryCache {
+    private static final long ENTRY_OVERHEAD_BYTES = 256;
+    private static final long ROW_OVERHEAD_BYTES = 160;
+    private static final double EVICTION_TARGET = 0.9;
+
+    private final StatsStorage statsStorage;
+    private final boolean enabled;
+    private final long maxMemoryBytes;
+    private final ConcurrentMap<StatsQuery, Entry> entries = new ConcurrentHashMap<>();
+    private final ConcurrentNavigableMap<EntryEnd, Entry> allUriEntries = new ConcurrentSkipListMap<>();
+    private final ConcurrentMap<String, Set<Entry>> entriesByUri = new ConcurrentHashMap<>();
+    private final Set<Fill> pendingFills = ConcurrentHashMap.newKeySet();
+    private final Set<List<EndpointHit>> pendingAppends = ConcurrentHashMap.newKeySet();
+    private final AtomicLong memoryBytes = new AtomicLong();
+    private final AtomicLong accessClock = new AtomicLong();
+    private final AtomicLong entryIds = new AtomicLong();
+    private final Object evictionLock = new Object();
+    private final Counter hitCounter;
+    private final Counter missCounter;
+    private final Counter evictionCounter;
+    private final Counter invalidationCounter;
+
+    public StatsQueryCache(StatsStorage statsStorage,
+                           MeterRegistry meterRegistry,
+                           @Value("${stats.cache.enabled:true}") boolean enabled,
+                           @Value("${stats.cache.max-memory-mb:64}") long maxMemoryMb) {
+        this.statsStorage = statsStorage;
+        this.enabled = enabled;
+        this.maxMemoryBytes = maxMemoryMb * 1024 * 1024;
+        this.hitCounter = Counter.builder("stats.cache.requests")
+                .tag("result", "hit")
+                .description("Stats queries answered by the result cache")
+                .register(meterRegistry);
+        this.missCounter = Counter.builder("stats.cache.requests")
+                .tag("result", "miss")
+                .description("Stats queries answered by the result cache")
+                .register(meterRegistry);
+        this.evictionCounter = Counter.builder("stats.cache.evictions")
+                .description("Cached stats results evicted to stay within the memory limit")
+                .register(meterRegistry);
+        this.invalidationCounter = Counter.builder("stats.cache.invalidations")
+                .description("Cached stats results dropped because matching hits arrived or expired")
+                .register(meterRegistry);
+        Gauge.builder("stats.cache.size", entries, Map::size)
+                .description("Cached stats results")
+                .register(meterRegistry);
+        Gauge.builder("stats.cache.memory", memoryBytes, AtomicLong::get)
+                .description("Estimated memory held by cached stats results")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+    }
+
+    public List<ViewStatsDto> getStats(StatsQuery query) {
+        if (!enabled) {
+            return statsStorage.getStats(query);
+        }
+        StatsQuery key = normalize(query);
+        Entry cached = entries.get(key);
+        if (cached != null) {
+            hitCounter.increment();
+            cached.lastAccess = accessClock.incrementAndGet();
+            return cached.getResult();
+        }
+        missCounter.increment();
+        Fill fill = new Fill(key);
+        pendingFills.add(fill);
+        try {
+            for (List<EndpointHit> hits : pendingAppends) {
+                fill.markIfCovers(hits);
+            }
+            List<ViewStatsDto> result = statsStorage.getStats(key);
+            fill.complete(result);
+            return result;
+        } finally {
+            pendingFills.remove(fill);
+        }
+    }
+
+    public void append(List<EndpointHit> hits) {
+        if (!enabled) {
+            statsStorage.append(hits);
+            return;
+        }
+        pendingAppends.add(hits);
+        try {
+            for (Fill fill : pendingFills) {
+                fill.markIfCovers(hits);
+            }
+            statsStorage.append(hits);
+            applyHits(hits);
+        } finally {
+            pendingAppends.remove(hits);
+        }
+    }
+
+    /**
+     * Drops cached results, and keeps results being computed out of the cache, for every query starting
+     * before {@code cutoff}. Called after hits before the cutoff were deleted from storage.
+     */
+    public void invalidateBefore(LocalDateTime cutoff) {
+        if (!enabled) {
+            return;
+        }
+        for (Fill fill : pendingFills) {
+            fill.markIfStartsBefore(cutoff);
+        }
+        for (Entry entry : entries.values()) {
+            if (entry.query.getStart().isBefore(cutoff) && remove(entry)) {
+                invalidationCounter.increment();
+            }
+        }
+    }
+
+    private void applyHits(List<EndpointHit> hits) {
+        if (entries.isEmpty()) {
+            return;
+        }
+        Set<Entry> invalidated = new HashSet<>();
+        for (EndpointHit hit : hits) {
+            applyHit(allUriEntries.tailMap(new EntryEnd(hit.getHitTimestamp(), Long.MIN_VALUE)).values(), hit, invalidated);
+            applyHit(entriesByUri.get(hit.getUri()), hit, invalidated);
+        }
+        for (Entry entry : invalidated) {
+            if (remove(entry)) {
+                invalidationCounter.increment();
+            }
+        }
+        evictOverflow();
+    }
+
+    private void applyHit(Iterable<Entry> candidates, EndpointHit hit, Set<Entry> invalidated) {
+        if (candidates == null) {
+            return;
+        }
+        for (Entry entry : candidates) {
+            if (!entry.covers(hit)) {
+                continue;
+            }
+            if (entry.query.isUnique()) {
+                invalidated.add(entry);
+            } else {
+                memoryBytes.addAndGet(entry.add(hit.getApp(), hit.getUri(), 1));
+            }
+        }
+    }
+
+    private void put(Entry entry) {
+        if (entry.memoryBytes > maxMemoryBytes) {
+            return;
+        }
+        entry.lastAccess = accessClock.incrementAndGet();
+        memoryBytes.addAndGet(entry.memoryBytes);
+        index(entry);
+        if (entries.putIfAbsent(entry.query, entry) != null) {
+            unindex(entry);
+            memoryBytes.addAndGet(-entry.close());
+            return;
+        }
+        evictOverflow();
+    }
+
+    private void evictOverflow() {
+        if (memoryBytes.get() <= maxMemoryBytes) {
+            return;
+        }
+        synchronized (evictionLock) {
+            if (memoryBytes.get() <= maxMemoryBytes) {
+                return;
+            }
+            List<Entry> eldestFirst = new ArrayList<>(entries.values());
+            eldestFirst.sort(Comparator.comparingLong(entry -> entry.lastAccess));
+            long target = (long) (maxMemoryBytes * EVICTION_TARGET);
+            for (Entry entry : eldestFirst) {
+                if (memoryBytes.get() <= target) {
+                    break;
+                }
+                if (remove(entry)) {
+                    evictionCounter.increment();
+                }
+            }
+        }
+    }
+
+    private boolean remove(Entry entry) {
+        if (!entries.remove(entry.query, entry)) {
+            return false;
+        }
+        unindex(entry);
+        memoryBytes.addAndGet(-entry.close());
+        return true;
+    }
+
+    private void index(Entry entry) {
+        if (entry.query.getUris() == null) {
+            allUriEntries.put(entry.end, entry);
+            return;
+        }
+        for (String uri : entry.query.getUris()) {
+            entriesByUri.compute(uri, (key, uriEntries) -> {
+                Set<Entry> indexed = uriEntries == null ? ConcurrentHashMap.newKeySet() : uriEntries;
+                indexed.add(entry);
+                return indexed;
+            });
+        }
+    }
+
+    private void unindex(Entry entry) {
+        if (entry.query.getUris() == null) {
+            allUriEntries.remove(entry.end, entry);
+            return;
+        }
+        for (String uri : entry.query.getUris()) {
+            entriesByUri.computeIfPresent(uri, (key, uriEntries) -> {
+                uriEntries.remove(entry);
+                return uriEntries.isEmpty() ? null : uriEntries;
+            });
+        }
+    }
+
+    private static StatsQuery normalize(StatsQuery query) {
+        if (query.getUris() == null) {
+            return query;
+        }
+        return StatsQuery.builder()
+                .start(query.getStart())
+                .end(query.getEnd())
+                .uris(new ArrayList<>(new TreeSet<>(query.getUris())))
+                .unique(query.isUnique())
+                .approximate(query.isApproximate())
+                .build();
+    }
+
+    private static boolean covers(StatsQuery query, EndpointHit hit) {
+        return !hit.getHitTimestamp().isBefore(query.getStart()) && !hit.getHitTimestamp().isAfter(query.getEnd())
+                && (query.getUris() == null || Collections.binarySearch(query.getUris(), hit.getUri()) >= 0);
+    }
+
+    private static long rowBytes(String app, String uri) {
+        return ROW_OVERHEAD_BYTES + 2L * (app.length() + uri.length());
+    }
+
+    /**
+     * A result being computed for a missing key. It is cached only if no append covering the key was in
+     * flight at any point while it was computed; once cached, later appends find it in the index.
+     */
+    private class Fill {
+        private final StatsQuery query;
+        private boolean dirty;
+        private boolean done;
+
+        Fill(StatsQuery query) {
+            this.query = query;
+        }
+
+        synchronized void markIfCovers(List<EndpointHit> hits) {
+            if (done || dirty) {
+                return;
+            }
+            for (EndpointHit hit : hits) {
+                if (covers(query, hit)) {
+                    dirty = true;
+                    return;
+                }
+            }
+        }
+
+        synchronized void markIfStartsBefore(LocalDateTime cutoff) {
+            if (query.getStart().isBefore(cutoff)) {
+                dirty = true;
+            }
+        }
+
+        synchronized void complete(List<ViewStatsDto> result) {
+            done = true;
+            if (!dirty) {
+                put(new Entry(query, entryIds.incrementAndGet(), result));
+            }
+        }
+    }
+
+    private static class Entry {
+        private final StatsQuery query;
+        private final EntryEnd end;
+        private final Map<AppUri, Long> hits = new HashMap<>();
+        private volatile long lastAccess;
+        private long memoryBytes;
+        private boolean closed;
+        private List<ViewStatsDto> result;
+
+        Entry(StatsQuery query, long id, List<ViewStatsDto> result) {
+            this.query = query;
+            this.end = new EntryEnd(query.getEnd(), id);
+            this.memoryBytes = ENTRY_OVERHEAD_BYTES;
+            if (query.getUris() != null) {
+                for (String uri : query.getUris()) {
+                    memoryBytes += 2L * uri.length();
+                }
+            }
+            for (ViewStatsDto viewStatsDto : result) {
+                add(viewStatsDto.getApp(), viewStatsDto.getUri(), viewStatsDto.getHits());
+            }
+        }
+
+        boolean covers(EndpointHit hit) {
+            return StatsQueryCache.covers(query, hit);
+        }
+
+        synchronized long add(String app, String uri, long count) {
+            if (closed) {
+                return 0;
+            }
+            result = null;
+            if (hits.merge(new AppUri(app, uri), count, Long::sum) != count) {
+                return 0;
+            }
+            long added = rowBytes(app, uri);
+            memoryBytes += added;
+            return added;
+        }
+
+        synchronized long close() {
+            closed = true;
+            return memoryBytes;
+        }
+
+        synchronized List<ViewStatsDto> getResult() {
+            if (result == null) {
+                List<ViewStatsDto> sorted = new ArrayList<>(hits.size());
+                hits.forEach((appUri, count) -> sorted.add(ViewStatsDto.builder()
+                        .app(appUri.getApp())
+                        .uri(appUri.getUri())
+                        .hits(count)
+                        .build()));
+                sorted.sort(Comparator.comparing(ViewStatsDto::getHits).reversed());
+                result = Collections.unmodifiableList(sorted);
+            }
+            return result;
+        }
+    }
+
+    @Getter
+    @EqualsAndHashCode
+    @RequiredArgsConstructor
+    private static class AppUri {
+        private final String app;
+        private final String uri;
+    }
+
+    @EqualsAndHashCode
+    @RequiredArgsConstructor
+    private static class EntryEnd implements Comparable<EntryEnd> {
+        private final LocalDateTime end;
+        private final long id;
+
+        @Override
+        public int compareTo(EntryEnd other) {
+            int byEnd = end.compareTo(other.end);
+            return byEnd != 0 ? byEnd : Long.compare(id, other.id);
+        }
+    }
+}
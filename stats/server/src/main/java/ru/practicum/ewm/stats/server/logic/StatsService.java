@@ -1,42 +1,147 @@
 package ru.practicum.ewm.stats.server.logic;
 
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.server.ResponseStatusException;
 import ru.practicum.ewm.stats.dto.EndpointHitDto;
+import ru.practicum.ewm.stats.dto.TimeSeriesPointDto;
 import ru.practicum.ewm.stats.dto.ViewStatsDto;
+import ru.practicum.ewm.stats.server.data.EndpointHit;
 import ru.practicum.ewm.stats.server.data.EndpointHitMapper;
-import ru.practicum.ewm.stats.server.data.EndpointHitRepository;
-import ru.practicum.ewm.stats.server.data.ViewStatsProjection;
+import ru.practicum.ewm.stats.server.data.TimeSeriesBucket;
+import ru.practicum.ewm.stats.server.storage.StatsQuery;
+import ru.practicum.ewm.stats.server.storage.StatsStorage;
+import ru.practicum.ewm.stats.server.storage.TimeSeriesQuery;
+import ru.practicum.ewm.stats.server.util.IpAddresses;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
 public class StatsService {
-    private final EndpointHitRepository endpointHitRepository;
+    private final StatsStorage statsStorage;
+    private final StatsQueryCache statsQueryCache;
+    private final HitIngestPipeline hitIngestPipeline;
+    private final StatsMetrics statsMetrics;
+    private final HitDeduplicator hitDeduplicator;
+    @Value("${stats.ingest.async:false}")
+    private boolean asyncIngest;
+    @Value("${stats.timeseries.max-buckets:10000}")
+    private int maxTimeSeriesBuckets;
 
-    @Transactional(readOnly = true)
-    public List<ViewStatsDto> getStats(LocalDateTime start, LocalDateTime end, List<String> uris, Boolean unique) {
-        List<ViewStatsProjection> results;
-        if (unique) {
-            results = endpointHitRepository.findUniqueStats(start, end, uris);
+    public List<ViewStatsDto> getStats(LocalDateTime start, LocalDateTime end, List<String> uris,
+                                       Boolean unique, Boolean approximate) {
+        List<ViewStatsDto> stats = statsMetrics.queryTimer(unique, uris)
+                .record(() -> statsQueryCache.getStats(toQuery(start, end, uris, unique, approximate)));
+        statsMetrics.recordQueryResultRows(stats.size());
+        return stats;
+    }
+
+    public List<ViewStatsDto> getTopStats(LocalDateTime start, LocalDateTime end, Integer limit, Boolean unique) {
+        return statsStorage.getTopStats(toQuery(start, end, null, unique, false), limit);
+    }
+
+    public List<TimeSeriesPointDto> getTimeSeries(String uri, LocalDateTime start, LocalDateTime end,
+                                                  String bucketCode, Boolean unique) {
+        TimeSeriesBucket bucket = TimeSeriesBucket.fromCode(bucketCode);
+        if (bucket == null) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid bucket: " + bucketCode + ", expected 1m, 1h or 1d");
+        }
+        LocalDateTime first = bucket.floor(start);
+        long buckets = bucket.getUnit().between(first, end) + 1;
+        if (buckets > maxTimeSeriesBuckets) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "Too many buckets: " + buckets + ", at most " + maxTimeSeriesBuckets + " allowed");
+        }
+        Map<LocalDateTime, Long> hits = statsStorage.getTimeSeries(TimeSeriesQuery.builder()
+                .uri(uri)
+                .start(start)
+                .end(end)
+                .bucket(bucket)
+                .unique(unique)
+                .build());
+        List<TimeSeriesPointDto> points = new ArrayList<>((int) buckets);
+        for (LocalDateTime point = first; !point.isAfter(end); point = point.plus(1, bucket.getUnit())) {
+            points.add(TimeSeriesPointDto.builder()
+                    .bucket(point)
+                    .hits(hits.getOrDefault(point, 0L))
+                    .build());
+        }
+        return points;
+    }
+
+    public void streamStats(LocalDateTime start, LocalDateTime end, List<String> uris,
+                            Boolean unique, Boolean approximate, Boolean ordered, Consumer<ViewStatsDto> consumer) {
+        statsStorage.streamStats(toQuery(start, end, uris, unique, approximate).toBuilder()
+                .ordered(ordered)
+                .build(), consumer);
+    }
+
+    /**
+     * Returns {@code false} if the hit was only queued for the ingest pipeline and may not be visible to
+     * stats queries yet.
+     */
+    public boolean createEndpointHit(EndpointHitDto endpointHitDto) {
+        return statsMetrics.hitTimer().record(() -> appendEndpointHit(endpointHitDto));
+    }
+
+    public void createEndpointHits(List<EndpointHitDto> endpointHitDtos) {
+        statsMetrics.hitsTimer().record(() -> appendEndpointHits(endpointHitDtos));
+    }
+
+    private boolean appendEndpointHit(EndpointHitDto endpointHitDto) {
+        validateIp(endpointHitDto);
+        EndpointHit endpointHit = EndpointHitMapper.INSTANCE.fromDto(endpointHitDto);
+        if (hitDeduplicator.isDuplicate(endpointHit)) {
+            return true;
+        }
+        if (asyncIngest) {
+            hitIngestPipeline.submit(endpointHit);
         } else {
-            results = endpointHitRepository.findNotUniqueStats(start, end, uris);
+            statsQueryCache.append(Collections.singletonList(endpointHit));
         }
-        return results.stream()
-                .map(result -> ViewStatsDto.builder()
-                        .app(result.getApp())
-                        .uri(result.getUri())
-                        .hits(result.getHits())
-                        .build())
+        hitDeduplicator.markSeen(Collections.singletonList(endpointHit));
+        return !asyncIngest;
+    }
+
+    private void appendEndpointHits(List<EndpointHitDto> endpointHitDtos) {
+        endpointHitDtos.forEach(this::validateIp);
+        Set<List<String>> batchKeys = new HashSet<>();
+        List<EndpointHit> hits = EndpointHitMapper.INSTANCE.fromDtos(endpointHitDtos).stream()
+                .filter(hit -> !hitDeduplicator.isDuplicate(hit))
+                .filter(hit -> !hitDeduplicator.isEnabled() || batchKeys.add(Arrays.asList(hit.getApp(), hit.getUri(), hit.getIp())))
                 .collect(Collectors.toList());
+        if (!hits.isEmpty()) {
+            statsQueryCache.append(hits);
+            hitDeduplicator.markSeen(hits);
+        }
     }
 
-    @Transactional
-    public void createEndpointHit(EndpointHitDto endpointHitDto) {
-        endpointHitRepository.save(EndpointHitMapper.INSTANCE.fromDto(endpointHitDto));
+    private StatsQuery toQuery(LocalDateTime start, LocalDateTime end, List<String> uris,
+                               Boolean unique, Boolean approximate) {
+        return StatsQuery.builder()
+                .start(start)
+                .end(end)
+                .uris(uris == null || uris.isEmpty() ? null : uris)
+                .unique(unique)
+                .approximate(approximate)
+                .build();
+    }
+
+    private void validateIp(EndpointHitDto endpointHitDto) {
+        if (!IpAddresses.isValid(endpointHitDto.getIp())) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid ip address: " + endpointHitDto.getIp());
+        }
     }
-}
\ No newline at end of file
+}
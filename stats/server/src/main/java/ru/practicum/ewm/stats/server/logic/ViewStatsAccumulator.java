@@ -0,0 +1,47 @@
+package ru.practicum.ewm.stats.server.logic;
+
+import ru.practicum.ewm.stats.dto.ViewStatsDto;
+import ru.practicum.ewm.stats.server.data.HitCountProjection;
+import ru.practicum.ewm.stats.server.data.StatsDictionary;
+import ru.practicum.ewm.stats.server.util.HitKeys;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+public class ViewStatsAccumulator {
+    private final Map<Long, Long> hitsByKey = new HashMap<>();
+
+    public void add(int appId, int uriId, long hits) {
+        hitsByKey.merge(HitKeys.toKey(appId, uriId), hits, Long::sum);
+    }
+
+    public void addAll(List<? extends HitCountProjection> hitCounts) {
+        for (HitCountProjection hitCount : hitCounts) {
+            add(hitCount.getAppId(), hitCount.getUriId(), hitCount.getHits());
+        }
+    }
+
+    public List<ViewStatsDto> toSortedList(StatsDictionary statsDictionary) {
+        Set<Integer> appIds = new HashSet<>();
+        Set<Integer> uriIds = new HashSet<>();
+        for (Long key : hitsByKey.keySet()) {
+            appIds.add(HitKeys.toAppId(key));
+            uriIds.add(HitKeys.toUriId(key));
+        }
+        Map<Integer, String> appNames = statsDictionary.findAppNames(appIds);
+        Map<Integer, String> uriNames = statsDictionary.findUriNames(uriIds);
+        List<ViewStatsDto> result = new ArrayList<>(hitsByKey.size());
+        hitsByKey.forEach((key, hits) -> result.add(ViewStatsDto.builder()
+                .app(appNames.get(HitKeys.toAppId(key)))
+                .uri(uriNames.get(HitKeys.toUriId(key)))
+                .hits(hits)
+                .build()));
+        result.sort(Comparator.comparing(ViewStatsDto::getHits).reversed());
+        return result;
+    }
+}
@@ -0,0 +1,238 @@
+package ru.practicum.ewm.stats.server.storage;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import ru.practicum.ewm.stats.dto.ViewStatsDto;
+import ru.practicum.ewm.stats.server.data.EndpointHit;
+import ru.practicum.ewm.stats.server.data.EndpointHitRepository;
+import ru.practicum.ewm.stats.server.data.HitCountProjection;
+import ru.practicum.ewm.stats.server.data.RollupGranularity;
+import ru.practicum.ewm.stats.server.data.RollupRepository;
+import ru.practicum.ewm.stats.server.data.SketchRepository;
+import ru.practicum.ewm.stats.server.data.StatsDictionary;
+import ru.practicum.ewm.stats.server.data.StatsRangePart;
+import ru.practicum.ewm.stats.server.data.StatsStreamRepository;
+import ru.practicum.ewm.stats.server.data.TimeSeriesRepository;
+import ru.practicum.ewm.stats.server.data.TopRepository;
+import ru.practicum.ewm.stats.server.data.UriFilter;
+import ru.practicum.ewm.stats.server.data.VisitorProjection;
+import ru.practicum.ewm.stats.server.logic.HitBatchWriter;
+import ru.practicum.ewm.stats.server.logic.HotWindowCounters;
+import ru.practicum.ewm.stats.server.logic.ViewStatsAccumulator;
+import ru.practicum.ewm.stats.server.util.HitKeys;
+import ru.practicum.ewm.stats.server.util.HyperLogLog;
+import ru.practicum.ewm.stats.server.util.IpAddresses;
+import ru.practicum.ewm.stats.server.util.SpaceSaving;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+@Service
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "stats.storage.engine", havingValue = "jpa", matchIfMissing = true)
+public class JpaStatsStorage implements StatsStorage {
+    private final EndpointHitRepository endpointHitRepository;
+    private final RollupRepository rollupRepository;
+    private final SketchRepository sketchRepository;
+    private final StatsStreamRepository statsStreamRepository;
+    private final TopRepository topRepository;
+    private final TimeSeriesRepository timeSeriesRepository;
+    private final StatsDictionary statsDictionary;
+    private final HotWindowCounters hotWindowCounters;
+    private final HitBatchWriter hitBatchWriter;
+
+    @Override
+    public void append(List<EndpointHit> hits) {
+        if (hits.isEmpty()) {
+            return;
+        }
+        statsDictionary.resolveIds(hits);
+        hitBatchWriter.write(hits);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<ViewStatsDto> getStats(StatsQuery query) {
+        UriFilter uriFilter = statsDictionary.findUriFilter(query.getUris());
+        if (uriFilter.matchesNothing()) {
+            return Collections.emptyList();
+        }
+        if (query.isUnique() && query.isApproximate()) {
+            return getApproximateUniqueStats(query.getStart(), query.getEnd(), uriFilter);
+        }
+        if (query.isUnique()) {
+            ViewStatsAccumulator accumulator = new ViewStatsAccumulator();
+            accumulator.addAll(endpointHitRepository.findUniqueStats(query.getStart(), query.getEnd(),
+                    uriFilter.isAll(), uriFilter.getQueryUriIds()));
+            return accumulator.toSortedList(statsDictionary);
+        }
+        return getNotUniqueStats(query.getStart(), query.getEnd(), uriFilter);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Map<LocalDateTime, Long> getTimeSeries(TimeSeriesQuery query) {
+        UriFilter uriFilter = statsDictionary.findUriFilter(Collections.singletonList(query.getUri()));
+        if (uriFilter.matchesNothing()) {
+            return Collections.emptyMap();
+        }
+        if (query.isUnique()) {
+            return timeSeriesRepository.findUniqueHits(query.getBucket(), query.getStart(), query.getEnd(), uriFilter);
+        }
+        return timeSeriesRepository.findNotUniqueHits(query.getBucket(), query.getStart(), query.getEnd(), uriFilter);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<ViewStatsDto> getTopStats(StatsQuery query, int limit) {
+        LocalDateTime start = query.getStart();
+        LocalDateTime end = query.getEnd();
+        LocalDateTime hourFrom = RollupGranularity.HOUR.ceil(start);
+        LocalDateTime hourTo = RollupGranularity.HOUR.floor(end);
+        SpaceSaving summary;
+        if (hourFrom.isBefore(hourTo)) {
+            summary = topRepository.mergeSummaries(hourFrom, hourTo);
+            if (start.isBefore(hourFrom)) {
+                addToSummary(summary, findAllHits(start, hourFrom, false));
+            }
+            addToSummary(summary, findAllHits(hourTo, end, true));
+        } else {
+            summary = new SpaceSaving(topRepository.getCapacity());
+            addToSummary(summary, findAllHits(start, end, true));
+        }
+        List<ViewStatsDto> result;
+        if (query.isUnique()) {
+            List<Integer> candidateUriIds = summary.top(summary.getCapacity()).stream()
+                    .map(counter -> HitKeys.toUriId(counter.getKey()))
+                    .distinct()
+                    .collect(Collectors.toList());
+            if (candidateUriIds.isEmpty()) {
+                return Collections.emptyList();
+            }
+            result = getApproximateUniqueStats(start, end, UriFilter.of(candidateUriIds));
+        } else {
+            ViewStatsAccumulator accumulator = new ViewStatsAccumulator();
+            for (SpaceSaving.Counter counter : summary.top(limit)) {
+                accumulator.add(HitKeys.toAppId(counter.getKey()), HitKeys.toUriId(counter.getKey()), counter.getCount());
+            }
+            result = accumulator.toSortedList(statsDictionary);
+        }
+        return result.size() > limit ? new ArrayList<>(result.subList(0, limit)) : result;
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public void streamStats(StatsQuery query, Consumer<ViewStatsDto> consumer) {
+        if (query.isUnique() && query.isApproximate()) {
+            getStats(query).forEach(consumer);
+            return;
+        }
+        UriFilter uriFilter = statsDictionary.findUriFilter(query.getUris());
+        if (uriFilter.matchesNothing()) {
+            return;
+        }
+        if (query.isUnique()) {
+            statsStreamRepository.streamUniqueStats(query.getStart(), query.getEnd(), uriFilter, query.isOrdered(), consumer);
+        } else {
+            statsStreamRepository.streamNotUniqueStats(StatsRangePart.split(query.getStart(), query.getEnd(), true),
+                    uriFilter, query.isOrdered(), consumer);
+        }
+    }
+
+    private List<ViewStatsDto> getNotUniqueStats(LocalDateTime start, LocalDateTime end, UriFilter uriFilter) {
+        ViewStatsAccumulator accumulator = new ViewStatsAccumulator();
+        LocalDateTime hotFrom = latest(RollupGranularity.MINUTE.ceil(start), hotWindowCounters.getCoveredFrom(uriFilter));
+        LocalDateTime hotTo = earliest(RollupGranularity.MINUTE.floor(end), hotWindowCounters.getCoveredTo());
+        if (hotFrom.isBefore(hotTo)) {
+            addStoredHits(accumulator, start, hotFrom, false, uriFilter);
+            hotWindowCounters.addHits(accumulator, hotFrom, hotTo, uriFilter);
+            addRawHits(accumulator, hotTo, end, true, uriFilter);
+        } else {
+            addStoredHits(accumulator, start, end, true, uriFilter);
+        }
+        return accumulator.toSortedList(statsDictionary);
+    }
+
+    private void addStoredHits(ViewStatsAccumulator accumulator, LocalDateTime start, LocalDateTime end,
+                               boolean endInclusive, UriFilter uriFilter) {
+        for (StatsRangePart part : StatsRangePart.split(start, end, endInclusive)) {
+            if (part.isRaw()) {
+                addRawHits(accumulator, part.getFrom(), part.getTo(), part.isToInclusive(), uriFilter);
+            } else {
+                accumulator.addAll(rollupRepository.findHits(part.getGranularity(), part.getFrom(), part.getTo(), uriFilter));
+            }
+        }
+    }
+
+    private void addRawHits(ViewStatsAccumulator accumulator, LocalDateTime start, LocalDateTime end,
+                            boolean endInclusive, UriFilter uriFilter) {
+        if (endInclusive) {
+            accumulator.addAll(endpointHitRepository.findNotUniqueStats(start, end,
+                    uriFilter.isAll(), uriFilter.getQueryUriIds()));
+        } else if (start.isBefore(end)) {
+            accumulator.addAll(endpointHitRepository.findNotUniqueStatsBefore(start, end,
+                    uriFilter.isAll(), uriFilter.getQueryUriIds()));
+        }
+    }
+
+    private List<ViewStatsDto> getApproximateUniqueStats(LocalDateTime start, LocalDateTime end, UriFilter uriFilter) {
+        boolean allUris = uriFilter.isAll();
+        List<Integer> uriIds = uriFilter.getQueryUriIds();
+        ViewStatsAccumulator accumulator = new ViewStatsAccumulator();
+        LocalDateTime hourFrom = RollupGranularity.HOUR.ceil(start);
+        LocalDateTime hourTo = RollupGranularity.HOUR.floor(end);
+        if (!hourFrom.isBefore(hourTo)) {
+            accumulator.addAll(endpointHitRepository.findUniqueStats(start, end, allUris, uriIds));
+            return accumulator.toSortedList(statsDictionary);
+        }
+        Map<Integer, Map<Integer, HyperLogLog>> sketches = new HashMap<>();
+        sketchRepository.mergeSketches(hourFrom, hourTo, uriFilter, (appId, uriId, sketch) -> sketches
+                .computeIfAbsent(appId, key -> new HashMap<>())
+                .merge(uriId, sketch, (merged, next) -> {
+                    merged.merge(next);
+                    return merged;
+                }));
+        List<VisitorProjection> edgeVisitors = new ArrayList<>();
+        if (start.isBefore(hourFrom)) {
+            edgeVisitors.addAll(endpointHitRepository.findVisitorsBefore(start, hourFrom, allUris, uriIds));
+        }
+        edgeVisitors.addAll(endpointHitRepository.findVisitors(hourTo, end, allUris, uriIds));
+        for (VisitorProjection visitor : edgeVisitors) {
+            sketches.computeIfAbsent(visitor.getAppId(), key -> new HashMap<>())
+                    .computeIfAbsent(visitor.getUriId(), key -> new HyperLogLog())
+                    .add(IpAddresses.toBytes(visitor.getIp()));
+        }
+        sketches.forEach((appId, sketchesByUri) -> sketchesByUri.forEach((uriId, sketch) ->
+                accumulator.add(appId, uriId, sketch.estimate())));
+        return accumulator.toSortedList(statsDictionary);
+    }
+
+    private List<HitCountProjection> findAllHits(LocalDateTime start, LocalDateTime end, boolean endInclusive) {
+        List<Integer> uriIds = UriFilter.all().getQueryUriIds();
+        return endInclusive
+                ? endpointHitRepository.findNotUniqueStats(start, end, true, uriIds)
+                : endpointHitRepository.findNotUniqueStatsBefore(start, end, true, uriIds);
+    }
+
+    private void addToSummary(SpaceSaving summary, List<HitCountProjection> hitCounts) {
+        for (HitCountProjection hitCount : hitCounts) {
+            summary.add(HitKeys.toKey(hitCount.getAppId(), hitCount.getUriId()), hitCount.getHits());
+        }
+    }
+
+    private static LocalDateTime latest(LocalDateTime first, LocalDateTime second) {
+        return first.isAfter(second) ? first : second;
+    }
+
+    private static LocalDateTime earliest(LocalDateTime first, LocalDateTime second) {
+        return first.isBefore(second) ? first : second;
+    }
+}
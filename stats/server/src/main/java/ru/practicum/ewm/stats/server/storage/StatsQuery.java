@@ -0,0 +1,19 @@
+package ru.practicum.ewm.stats.server.storage;
+
+import lombok.Builder;
+import lombok.Value;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Value
+@Builder(toBuilder = true)
+public class StatsQuery {
+    LocalDateTime start;
+    LocalDateTime end;
+    List<String> uris;
+    boolean unique;
+    boolean approximate;
+    @Builder.Default
+    boolean ordered = true;
+}
@@ -0,0 +1,31 @@
+package ru.practicum.ewm.stats.server.storage;
+
+import ru.practicum.ewm.stats.dto.ViewStatsDto;
+import ru.practicum.ewm.stats.server.data.EndpointHit;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+public interface StatsStorage {
+    void append(List<EndpointHit> hits);
+
+    List<ViewStatsDto> getStats(StatsQuery query);
+
+    Map<LocalDateTime, Long> getTimeSeries(TimeSeriesQuery query);
+
+    default List<ViewStatsDto> getTopStats(StatsQuery query, int limit) {
+        List<ViewStatsDto> stats = getStats(query);
+        return stats.size() > limit ? new ArrayList<>(stats.subList(0, limit)) : stats;
+    }
+
+    /**
+     * Streams the same rows as {@link #getStats}. Unless {@link StatsQuery#isOrdered()} is {@code false}, rows
+     * come in descending hits order, so the first row is only available once the whole range has been aggregated.
+     */
+    default void streamStats(StatsQuery query, Consumer<ViewStatsDto> consumer) {
+        getStats(query).forEach(consumer);
+    }
+}
@@ -0,0 +1,17 @@
+package ru.practicum.ewm.stats.server.storage;
+
+import lombok.Builder;
+import lombok.Value;
+import ru.practicum.ewm.stats.server.data.TimeSeriesBucket;
+
+import java.time.LocalDateTime;
+
+@Value
+@Builder
+public class TimeSeriesQuery {
+    String uri;
+    LocalDateTime start;
+    LocalDateTime end;
+    TimeSeriesBucket bucket;
+    boolean unique;
+}
@@ -0,0 +1,192 @@
+package ru.practicum.ewm.stats.server.storage.segment;
+
+import lombok.Getter;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Append-only file of fixed-width hit records mapped into memory.
+ * <p>
+ * Header: magic, version, capacity, record count, min and max timestamp. Record: epoch second, app id,
+ * uri id and the address as 16 bytes (IPv4 mapped into IPv6). Records are published by bumping the count
+ * after they are written, so readers never see a half-written record. Per-uri record positions are kept
+ * in memory and rebuilt from the file on startup.
+ */
+class Segment {
+    static final int HEADER_SIZE = 64;
+    static final int RECORD_SIZE = 32;
+
+    private static final int MAGIC = 0x45574D53;
+    private static final int VERSION = 1;
+    private static final int CAPACITY_OFFSET = 8;
+    private static final int COUNT_OFFSET = 12;
+    private static final int MIN_TIMESTAMP_OFFSET = 16;
+    private static final int MAX_TIMESTAMP_OFFSET = 24;
+
+    @Getter
+    private final long sequence;
+    private final MappedByteBuffer buffer;
+    private final int capacity;
+    private final Map<Integer, PostingList> postingsByUri = new ConcurrentHashMap<>();
+    private volatile long minTimestamp = Long.MAX_VALUE;
+    private volatile long maxTimestamp = Long.MIN_VALUE;
+    private volatile int count;
+
+    private Segment(long sequence, MappedByteBuffer buffer, int capacity) {
+        this.sequence = sequence;
+        this.buffer = buffer;
+        this.capacity = capacity;
+    }
+
+    static Segment create(Path path, long sequence, int capacity) throws IOException {
+        Segment segment = new Segment(sequence, map(path, HEADER_SIZE + (long) capacity * RECORD_SIZE), capacity);
+        segment.buffer.putInt(0, MAGIC);
+        segment.buffer.putInt(4, VERSION);
+        segment.buffer.putInt(CAPACITY_OFFSET, capacity);
+        segment.writeHeader();
+        return segment;
+    }
+
+    static Segment open(Path path, long sequence) throws IOException {
+        MappedByteBuffer buffer = map(path, -1);
+        if (buffer.capacity() < HEADER_SIZE || buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+            throw new IOException("Not a stats segment: " + path);
+        }
+        int capacity = buffer.getInt(CAPACITY_OFFSET);
+        int count = buffer.getInt(COUNT_OFFSET);
+        if (count < 0 || count > capacity || buffer.capacity() < HEADER_SIZE + (long) capacity * RECORD_SIZE) {
+            throw new IOException("Corrupted stats segment header: " + path);
+        }
+        Segment segment = new Segment(sequence, buffer, capacity);
+        for (int index = 0; index < count; index++) {
+            segment.index(index);
+        }
+        segment.count = count;
+        return segment;
+    }
+
+    boolean isFull() {
+        return count == capacity;
+    }
+
+    void append(long timestamp, int appId, int uriId, byte[] ip) {
+        int index = count;
+        int offset = offset(index);
+        buffer.putLong(offset, timestamp);
+        buffer.putInt(offset + 8, appId);
+        buffer.putInt(offset + 12, uriId);
+        int ipOffset = offset + 16;
+        if (ip.length == 4) {
+            buffer.putLong(ipOffset, 0);
+            buffer.putInt(ipOffset + 8, 0xFFFF);
+            buffer.put(ipOffset + 12, ip[0]);
+            buffer.put(ipOffset + 13, ip[1]);
+            buffer.put(ipOffset + 14, ip[2]);
+            buffer.put(ipOffset + 15, ip[3]);
+        } else {
+            for (int i = 0; i < 16; i++) {
+                buffer.put(ipOffset + i, ip[i]);
+            }
+        }
+        index(index);
+        count = index + 1;
+        writeHeader();
+    }
+
+    void scan(long from, long to, Collection<Integer> uriIds, HitVisitor visitor) {
+        int limit = count;
+        if (limit == 0 || maxTimestamp < from || minTimestamp > to) {
+            return;
+        }
+        if (uriIds == null) {
+            for (int index = 0; index < limit; index++) {
+                visit(index, from, to, visitor);
+            }
+            return;
+        }
+        for (Integer uriId : uriIds) {
+            PostingList postings = postingsByUri.get(uriId);
+            if (postings == null) {
+                continue;
+            }
+            int size = postings.size;
+            int[] positions = postings.positions;
+            for (int i = 0; i < size && positions[i] < limit; i++) {
+                visit(positions[i], from, to, visitor);
+            }
+        }
+    }
+
+    void force() {
+        buffer.force();
+    }
+
+    private void visit(int index, long from, long to, HitVisitor visitor) {
+        int offset = offset(index);
+        long timestamp = buffer.getLong(offset);
+        if (timestamp < from || timestamp > to) {
+            return;
+        }
+        visitor.visit(timestamp, buffer.getInt(offset + 8), buffer.getInt(offset + 12),
+                buffer.getLong(offset + 16), buffer.getLong(offset + 24));
+    }
+
+    private void index(int index) {
+        int offset = offset(index);
+        long timestamp = buffer.getLong(offset);
+        postingsByUri.computeIfAbsent(buffer.getInt(offset + 12), key -> new PostingList()).add(index);
+        if (timestamp < minTimestamp) {
+            minTimestamp = timestamp;
+        }
+        if (timestamp > maxTimestamp) {
+            maxTimestamp = timestamp;
+        }
+    }
+
+    private void writeHeader() {
+        buffer.putInt(COUNT_OFFSET, count);
+        buffer.putLong(MIN_TIMESTAMP_OFFSET, minTimestamp);
+        buffer.putLong(MAX_TIMESTAMP_OFFSET, maxTimestamp);
+    }
+
+    private static int offset(int index) {
+        return HEADER_SIZE + index * RECORD_SIZE;
+    }
+
+    private static MappedByteBuffer map(Path path, long size) throws IOException {
+        try (RandomAccessFile file = new RandomAccessFile(path.toFile(), "rw");
+             FileChannel channel = file.getChannel()) {
+            if (size >= 0) {
+                file.setLength(size);
+            }
+            return channel.map(FileChannel.MapMode.READ_WRITE, 0, channel.size());
+        }
+    }
+
+    interface HitVisitor {
+        void visit(long timestamp, int appId, int uriId, long ipHigh, long ipLow);
+    }
+
+    private static class PostingList {
+        private volatile int[] positions = new int[16];
+        private volatile int size;
+
+        void add(int position) {
+            int[] current = positions;
+            if (size == current.length) {
+                current = Arrays.copyOf(current, size * 2);
+                positions = current;
+            }
+            current[size] = position;
+            size = size + 1;
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package ru.practicum.ewm.stats.server.storage.segment;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+@Slf4j
+class SegmentDictionary implements Closeable {
+    private static final byte APP = 'A';
+    private static final byte URI = 'U';
+
+    private final Map<String, Integer> appIds = new ConcurrentHashMap<>();
+    private final Map<Integer, String> appNames = new ConcurrentHashMap<>();
+    private final Map<String, Integer> uriIds = new ConcurrentHashMap<>();
+    private final Map<Integer, String> uriNames = new ConcurrentHashMap<>();
+    private final DataOutputStream output;
+
+    SegmentDictionary(Path path) throws IOException {
+        if (Files.exists(path)) {
+            load(path);
+        }
+        this.output = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(path,
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND)));
+    }
+
+    synchronized int getOrCreateAppId(String name) {
+        return getOrCreate(APP, name, appIds, appNames);
+    }
+
+    synchronized int getOrCreateUriId(String name) {
+        return getOrCreate(URI, name, uriIds, uriNames);
+    }
+
+    List<Integer> findUriIds(Collection<String> names) {
+        Set<Integer> ids = new LinkedHashSet<>();
+        for (String name : names) {
+            Integer id = uriIds.get(name);
+            if (id != null) {
+                ids.add(id);
+            }
+        }
+        return new ArrayList<>(ids);
+    }
+
+    String getAppName(int id) {
+        return appNames.get(id);
+    }
+
+    String getUriName(int id) {
+        return uriNames.get(id);
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        output.close();
+    }
+
+    private int getOrCreate(byte type, String name, Map<String, Integer> ids, Map<Integer, String> names) {
+        Integer id = ids.get(name);
+        if (id != null) {
+            return id;
+        }
+        int created = ids.size() + 1;
+        try {
+            output.writeByte(type);
+            output.writeInt(created);
+            output.writeUTF(name);
+            output.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to write stats dictionary", e);
+        }
+        names.put(created, name);
+        ids.put(name, created);
+        return created;
+    }
+
+    private void load(Path path) throws IOException {
+        byte[] bytes = Files.readAllBytes(path);
+        DataInputStream input = new DataInputStream(new ByteArrayInputStream(bytes));
+        long valid = 0;
+        try {
+            while (input.available() > 0) {
+                byte type = input.readByte();
+                int id = input.readInt();
+                String name = input.readUTF();
+                if (type == APP) {
+                    appIds.put(name, id);
+                    appNames.put(id, name);
+                } else if (type == URI) {
+                    uriIds.put(name, id);
+                    uriNames.put(id, name);
+                } else {
+                    throw new IOException("Unknown stats dictionary entry type " + type + " in " + path);
+                }
+                valid = bytes.length - input.available();
+            }
+        } catch (EOFException e) {
+            log.warn("Stats dictionary {} ends with a partial entry, truncating to {} bytes", path, valid);
+        }
+        if (valid < bytes.length) {
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+                channel.truncate(valid);
+            }
+        }
+    }
+}
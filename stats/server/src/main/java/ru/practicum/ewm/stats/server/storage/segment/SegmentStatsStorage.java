@@ -0,0 +1,267 @@
+package ru.practicum.ewm.stats.server.storage.segment;
+
+import lombok.EqualsAndHashCode;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import ru.practicum.ewm.stats.dto.ViewStatsDto;
+import ru.practicum.ewm.stats.server.data.EndpointHit;
+import ru.practicum.ewm.stats.server.storage.StatsQuery;
+import ru.practicum.ewm.stats.server.storage.StatsStorage;
+import ru.practicum.ewm.stats.server.storage.TimeSeriesQuery;
+import ru.practicum.ewm.stats.server.util.HitKeys;
+import ru.practicum.ewm.stats.server.util.HyperLogLog;
+import ru.practicum.ewm.stats.server.util.IpAddresses;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "stats.storage.engine", havingValue = "segment")
+public class SegmentStatsStorage implements StatsStorage {
+    private static final Pattern SEGMENT_NAME = Pattern.compile("segment-(\\d+)\\.dat");
+    private static final int MAX_SEGMENT_RECORDS = (Integer.MAX_VALUE - Segment.HEADER_SIZE) / Segment.RECORD_SIZE;
+
+    private final Path directory;
+    private final int segmentRecords;
+    private final SegmentDictionary dictionary;
+    private final List<Segment> segments = new CopyOnWriteArrayList<>();
+    private Segment activeSegment;
+
+    public SegmentStatsStorage(@Value("${stats.storage.segment.directory:stats-segments}") String directory,
+                               @Value("${stats.storage.segment.records:1048576}") int segmentRecords)
+            throws IOException {
+        if (segmentRecords <= 0 || segmentRecords > MAX_SEGMENT_RECORDS) {
+            throw new IllegalArgumentException("stats.storage.segment.records must be between 1 and " + MAX_SEGMENT_RECORDS);
+        }
+        this.directory = Paths.get(directory);
+        this.segmentRecords = segmentRecords;
+        Files.createDirectories(this.directory);
+        this.dictionary = new SegmentDictionary(this.directory.resolve("dictionary.dat"));
+        openSegments();
+    }
+
+    @Override
+    public synchronized void append(List<EndpointHit> hits) {
+        for (EndpointHit hit : hits) {
+            if (activeSegment == null || activeSegment.isFull()) {
+                rollSegment();
+            }
+            activeSegment.append(hit.getHitTimestamp().toEpochSecond(ZoneOffset.UTC),
+                    dictionary.getOrCreateAppId(hit.getApp()),
+                    dictionary.getOrCreateUriId(hit.getUri()),
+                    IpAddresses.toBytes(hit.getIp()));
+        }
+    }
+
+    @Override
+    public List<ViewStatsDto> getStats(StatsQuery query) {
+        List<Integer> uriIds = null;
+        if (query.getUris() != null) {
+            uriIds = dictionary.findUriIds(query.getUris());
+            if (uriIds.isEmpty()) {
+                return Collections.emptyList();
+            }
+        }
+        Aggregation aggregation;
+        if (!query.isUnique()) {
+            aggregation = new CountAggregation();
+        } else if (query.isApproximate()) {
+            aggregation = new SketchAggregation();
+        } else {
+            aggregation = new DistinctAggregation();
+        }
+        long from = toEpochSecond(query.getStart());
+        long to = toEpochSecond(query.getEnd());
+        for (Segment segment : segments) {
+            segment.scan(from, to, uriIds, aggregation);
+        }
+        List<ViewStatsDto> result = new ArrayList<>();
+        aggregation.getHits().forEach((key, hits) -> result.add(ViewStatsDto.builder()
+                .app(dictionary.getAppName(HitKeys.toAppId(key)))
+                .uri(dictionary.getUriName(HitKeys.toUriId(key)))
+                .hits(hits)
+                .build()));
+        result.sort(Comparator.comparing(ViewStatsDto::getHits).reversed());
+        return result;
+    }
+
+    @Override
+    public Map<LocalDateTime, Long> getTimeSeries(TimeSeriesQuery query) {
+        List<Integer> uriIds = dictionary.findUriIds(Collections.singletonList(query.getUri()));
+        if (uriIds.isEmpty()) {
+            return Collections.emptyMap();
+        }
+        TimeSeriesAggregation aggregation = new TimeSeriesAggregation(query.getBucket().getUnit().getDuration().getSeconds(),
+                query.isUnique());
+        long from = toEpochSecond(query.getStart());
+        long to = toEpochSecond(query.getEnd());
+        for (Segment segment : segments) {
+            segment.scan(from, to, uriIds, aggregation);
+        }
+        Map<LocalDateTime, Long> hits = new HashMap<>();
+        aggregation.getHits().forEach((bucket, count) ->
+                hits.put(LocalDateTime.ofEpochSecond(bucket, 0, ZoneOffset.UTC), count));
+        return hits;
+    }
+
+    @PreDestroy
+    private synchronized void close() throws IOException {
+        if (activeSegment != null) {
+            activeSegment.force();
+        }
+        dictionary.close();
+    }
+
+    private void openSegments() throws IOException {
+        List<Path> paths;
+        try (Stream<Path> files = Files.list(directory)) {
+            paths = files.filter(path -> SEGMENT_NAME.matcher(path.getFileName().toString()).matches())
+                    .sorted(Comparator.comparing(SegmentStatsStorage::toSequence))
+                    .collect(Collectors.toList());
+        }
+        for (Path path : paths) {
+            segments.add(Segment.open(path, toSequence(path)));
+        }
+        if (!segments.isEmpty()) {
+            activeSegment = segments.get(segments.size() - 1);
+        }
+        log.info("Opened {} stats segments in {}", segments.size(), directory.toAbsolutePath());
+    }
+
+    private void rollSegment() {
+        long sequence = activeSegment == null ? 1 : activeSegment.getSequence() + 1;
+        try {
+            if (activeSegment != null) {
+                activeSegment.force();
+            }
+            Segment segment = Segment.create(directory.resolve(String.format("segment-%016d.dat", sequence)),
+                    sequence, segmentRecords);
+            segments.add(segment);
+            activeSegment = segment;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to create stats segment " + sequence, e);
+        }
+    }
+
+    private static long toSequence(Path path) {
+        Matcher matcher = SEGMENT_NAME.matcher(path.getFileName().toString());
+        if (!matcher.matches()) {
+            throw new IllegalArgumentException("Not a segment file: " + path);
+        }
+        return Long.parseLong(matcher.group(1));
+    }
+
+    private static long toEpochSecond(LocalDateTime dateTime) {
+        return dateTime.toEpochSecond(ZoneOffset.UTC);
+    }
+
+    private interface Aggregation extends Segment.HitVisitor {
+        Map<Long, Long> getHits();
+    }
+
+    private static class CountAggregation implements Aggregation {
+        private final Map<Long, Long> hits = new HashMap<>();
+
+        @Override
+        public void visit(long timestamp, int appId, int uriId, long ipHigh, long ipLow) {
+            hits.merge(HitKeys.toKey(appId, uriId), 1L, Long::sum);
+        }
+
+        @Override
+        public Map<Long, Long> getHits() {
+            return hits;
+        }
+    }
+
+    private static class DistinctAggregation implements Aggregation {
+        private final Map<Long, Set<Address>> visitors = new HashMap<>();
+
+        @Override
+        public void visit(long timestamp, int appId, int uriId, long ipHigh, long ipLow) {
+            visitors.computeIfAbsent(HitKeys.toKey(appId, uriId), key -> new HashSet<>()).add(new Address(ipHigh, ipLow));
+        }
+
+        @Override
+        public Map<Long, Long> getHits() {
+            Map<Long, Long> hits = new HashMap<>();
+            visitors.forEach((key, addresses) -> hits.put(key, (long) addresses.size()));
+            return hits;
+        }
+    }
+
+    private static class SketchAggregation implements Aggregation {
+        private final Map<Long, HyperLogLog> sketches = new HashMap<>();
+        private final byte[] address = new byte[16];
+        private final ByteBuffer addressBuffer = ByteBuffer.wrap(address);
+
+        @Override
+        public void visit(long timestamp, int appId, int uriId, long ipHigh, long ipLow) {
+            addressBuffer.putLong(0, ipHigh).putLong(8, ipLow);
+            sketches.computeIfAbsent(HitKeys.toKey(appId, uriId), key -> new HyperLogLog()).add(address);
+        }
+
+        @Override
+        public Map<Long, Long> getHits() {
+            Map<Long, Long> hits = new HashMap<>();
+            sketches.forEach((key, sketch) -> hits.put(key, sketch.estimate()));
+            return hits;
+        }
+    }
+
+    @RequiredArgsConstructor
+    private static class TimeSeriesAggregation implements Aggregation {
+        private final long bucketSeconds;
+        private final boolean unique;
+        private final Map<Long, Long> hits = new HashMap<>();
+        private final Map<Long, Set<Address>> visitors = new HashMap<>();
+
+        @Override
+        public void visit(long timestamp, int appId, int uriId, long ipHigh, long ipLow) {
+            long bucket = Math.floorDiv(timestamp, bucketSeconds) * bucketSeconds;
+            if (unique) {
+                visitors.computeIfAbsent(bucket, key -> new HashSet<>()).add(new Address(ipHigh, ipLow));
+            } else {
+                hits.merge(bucket, 1L, Long::sum);
+            }
+        }
+
+        @Override
+        public Map<Long, Long> getHits() {
+            if (unique) {
+                visitors.forEach((bucket, addresses) -> hits.put(bucket, (long) addresses.size()));
+            }
+            return hits;
+        }
+    }
+
+    @EqualsAndHashCode
+    @RequiredArgsConstructor
+    private static class Address {
+        private final long high;
+        private final long low;
+    }
+}
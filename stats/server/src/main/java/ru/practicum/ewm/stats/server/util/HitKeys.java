@@ -0,0 +1,18 @@
+package ru.practicum.ewm.stats.server.util;
+
+import lombok.experimental.UtilityClass;
+
+@UtilityClass
+public class HitKeys {
+    public long toKey(int appId, int uriId) {
+        return (long) appId << 32 | uriId & 0xFFFFFFFFL;
+    }
+
+    public int toAppId(long key) {
+        return (int) (key >>> 32);
+    }
+
+    public int toUriId(long key) {
+        return (int) key;
+    }
+}
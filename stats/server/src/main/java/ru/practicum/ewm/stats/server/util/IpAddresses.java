@@ -0,0 +1,68 @@
+package ru.practicum.ewm.stats.server.util;
+
+import lombok.experimental.UtilityClass;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+
+@UtilityClass
+public class IpAddresses {
+    public byte[] toBytes(String ip) {
+        if (ip == null || ip.isEmpty()) {
+            throw new IllegalArgumentException("IP address is empty");
+        }
+        if (ip.indexOf(':') < 0) {
+            return parseIpv4(ip);
+        }
+        for (int i = 0; i < ip.length(); i++) {
+            char c = ip.charAt(i);
+            if (Character.digit(c, 16) < 0 && c != ':' && c != '.') {
+                throw new IllegalArgumentException("Invalid IP address: " + ip);
+            }
+        }
+        try {
+            return InetAddress.getByName(ip).getAddress();
+        } catch (UnknownHostException e) {
+            throw new IllegalArgumentException("Invalid IP address: " + ip, e);
+        }
+    }
+
+    public boolean isValid(String ip) {
+        try {
+            toBytes(ip);
+            return true;
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    private byte[] parseIpv4(String ip) {
+        byte[] bytes = new byte[4];
+        int octet = 0;
+        int value = 0;
+        int digits = 0;
+        for (int i = 0; i <= ip.length(); i++) {
+            char c = i < ip.length() ? ip.charAt(i) : '.';
+            if (c == '.') {
+                if (digits == 0 || octet == 4) {
+                    throw new IllegalArgumentException("Invalid IP address: " + ip);
+                }
+                bytes[octet++] = (byte) value;
+                value = 0;
+                digits = 0;
+            } else if (c >= '0' && c <= '9' && digits < 3) {
+                value = value * 10 + (c - '0');
+                digits++;
+                if (value > 255) {
+                    throw new IllegalArgumentException("Invalid IP address: " + ip);
+                }
+            } else {
+                throw new IllegalArgumentException("Invalid IP address: " + ip);
+            }
+        }
+        if (octet != 4) {
+            throw new IllegalArgumentException("Invalid IP address: " + ip);
+        }
+        return bytes;
+    }
+}
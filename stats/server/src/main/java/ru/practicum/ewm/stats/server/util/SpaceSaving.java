@@ -0,0 +1,144 @@
+package ru.practicum.ewm.stats.server.util;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.TreeSet;
+
+/**
+ * Space-Saving heavy-hitter summary over long keys with at most {@code capacity} counters.
+ * A counter's true count lies in [count - error, count]; while fewer than {@code capacity} keys
+ * were seen all counts are exact. Any key with a true count above total / capacity is guaranteed
+ * to be tracked. Summaries merge, and the merged bounds still hold for the union. Counters are also
+ * kept ordered by count, so adding a key and evicting the minimum take O(log capacity).
+ */
+public class SpaceSaving {
+    private static final int ENTRY_SIZE = 3 * Long.BYTES;
+    private static final Comparator<Counter> BY_COUNT = Comparator.comparingLong(Counter::getCount)
+            .thenComparingLong(Counter::getKey);
+
+    @Getter
+    private final int capacity;
+    private final Map<Long, Counter> counters = new HashMap<>();
+    private final NavigableSet<Counter> byCount = new TreeSet<>(BY_COUNT);
+
+    public SpaceSaving(int capacity) {
+        this.capacity = capacity;
+    }
+
+    public static SpaceSaving fromBytes(byte[] bytes, int capacity) {
+        SpaceSaving summary = new SpaceSaving(capacity);
+        if (bytes == null || bytes.length == 0) {
+            return summary;
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        int size = buffer.getInt();
+        if (bytes.length != Integer.BYTES + size * ENTRY_SIZE) {
+            throw new IllegalArgumentException("Expected " + size + " counters, got " + bytes.length + " bytes");
+        }
+        for (int i = 0; i < size; i++) {
+            summary.put(new Counter(buffer.getLong(), buffer.getLong(), buffer.getLong()));
+        }
+        summary.truncate();
+        return summary;
+    }
+
+    public void add(long key, long count) {
+        Counter counter = counters.get(key);
+        if (counter != null) {
+            byCount.remove(counter);
+            counter.count += count;
+            byCount.add(counter);
+            return;
+        }
+        if (counters.size() < capacity) {
+            put(new Counter(key, count, 0));
+            return;
+        }
+        Counter min = byCount.pollFirst();
+        counters.remove(min.key);
+        put(new Counter(key, min.count + count, min.count));
+    }
+
+    public void merge(SpaceSaving other) {
+        long minCount = getMinCount();
+        long otherMinCount = other.getMinCount();
+        Map<Long, Counter> merged = new HashMap<>();
+        for (Counter counter : counters.values()) {
+            Counter otherCounter = other.counters.get(counter.key);
+            if (otherCounter != null) {
+                merged.put(counter.key, new Counter(counter.key, counter.count + otherCounter.count,
+                        counter.error + otherCounter.error));
+            } else {
+                merged.put(counter.key, new Counter(counter.key, counter.count + otherMinCount,
+                        counter.error + otherMinCount));
+            }
+        }
+        for (Counter otherCounter : other.counters.values()) {
+            if (!counters.containsKey(otherCounter.key)) {
+                merged.put(otherCounter.key, new Counter(otherCounter.key, otherCounter.count + minCount,
+                        otherCounter.error + minCount));
+            }
+        }
+        counters.clear();
+        byCount.clear();
+        merged.values().forEach(this::put);
+        truncate();
+    }
+
+    public List<Counter> top(int limit) {
+        List<Counter> top = new ArrayList<>(Math.min(limit, byCount.size()));
+        for (Counter counter : byCount.descendingSet()) {
+            if (top.size() == limit) {
+                break;
+            }
+            top.add(counter);
+        }
+        return top;
+    }
+
+    public byte[] toBytes() {
+        ByteBuffer buffer = ByteBuffer.allocate(Integer.BYTES + counters.size() * ENTRY_SIZE);
+        buffer.putInt(counters.size());
+        for (Counter counter : byCount) {
+            buffer.putLong(counter.key).putLong(counter.count).putLong(counter.error);
+        }
+        return buffer.array();
+    }
+
+    private long getMinCount() {
+        if (counters.size() < capacity) {
+            return 0;
+        }
+        return byCount.isEmpty() ? 0 : byCount.first().count;
+    }
+
+    private void put(Counter counter) {
+        Counter previous = counters.put(counter.key, counter);
+        if (previous != null) {
+            byCount.remove(previous);
+        }
+        byCount.add(counter);
+    }
+
+    private void truncate() {
+        while (counters.size() > capacity) {
+            counters.remove(byCount.pollFirst().key);
+        }
+    }
+
+    @Getter
+    @AllArgsConstructor
+    public static class Counter {
+        private final long key;
+        private long count;
+        private long error;
+    }
+}
@@ -1,10 +1,70 @@
 DROP TABLE IF EXISTS endpoints_hits;
+DROP TABLE IF EXISTS endpoints_hits_minutely;
+DROP TABLE IF EXISTS endpoints_hits_hourly;
+DROP TABLE IF EXISTS endpoints_hits_hourly_sketches;
+DROP TABLE IF EXISTS endpoints_hits_hourly_top;
+DROP TABLE IF EXISTS stats_apps;
+DROP TABLE IF EXISTS stats_uris;
+
+CREATE TABLE IF NOT EXISTS stats_apps
+(
+    app_id   INTEGER GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    app_name VARCHAR NOT NULL,
+    CONSTRAINT uq_stats_apps_name UNIQUE (app_name)
+);
+
+CREATE TABLE IF NOT EXISTS stats_uris
+(
+    uri_id   INTEGER GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    uri_name VARCHAR NOT NULL,
+    CONSTRAINT uq_stats_uris_name UNIQUE (uri_name)
+);
 
 CREATE TABLE IF NOT EXISTS endpoints_hits
 (
-    id        BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
-    app       VARCHAR,
-    uri       VARCHAR,
-    ip        VARCHAR,
-    hit_timestamp TIMESTAMP WITHOUT TIME ZONE
-);
\ No newline at end of file
+    id            BIGINT GENERATED BY DEFAULT AS IDENTITY,
+    app_id        INTEGER NOT NULL,
+    uri_id        INTEGER NOT NULL,
+    ip            INET NOT NULL,
+    hit_timestamp TIMESTAMP WITHOUT TIME ZONE NOT NULL,
+    PRIMARY KEY (id, hit_timestamp)
+) PARTITION BY RANGE (hit_timestamp);
+
+CREATE TABLE IF NOT EXISTS endpoints_hits_default PARTITION OF endpoints_hits DEFAULT;
+
+CREATE INDEX IF NOT EXISTS ix_endpoints_hits_timestamp ON endpoints_hits USING BRIN (hit_timestamp);
+
+CREATE INDEX IF NOT EXISTS ix_endpoints_hits_uri_timestamp ON endpoints_hits (uri_id, hit_timestamp) INCLUDE (ip);
+
+CREATE TABLE IF NOT EXISTS endpoints_hits_minutely
+(
+    bucket TIMESTAMP WITHOUT TIME ZONE NOT NULL,
+    app_id INTEGER NOT NULL,
+    uri_id INTEGER NOT NULL,
+    hits   BIGINT NOT NULL,
+    PRIMARY KEY (bucket, app_id, uri_id)
+);
+
+CREATE TABLE IF NOT EXISTS endpoints_hits_hourly
+(
+    bucket TIMESTAMP WITHOUT TIME ZONE NOT NULL,
+    app_id INTEGER NOT NULL,
+    uri_id INTEGER NOT NULL,
+    hits   BIGINT NOT NULL,
+    PRIMARY KEY (bucket, app_id, uri_id)
+);
+
+CREATE TABLE IF NOT EXISTS endpoints_hits_hourly_sketches
+(
+    bucket TIMESTAMP WITHOUT TIME ZONE NOT NULL,
+    app_id INTEGER NOT NULL,
+    uri_id INTEGER NOT NULL,
+    sketch BYTEA NOT NULL,
+    PRIMARY KEY (bucket, app_id, uri_id)
+);
+
+CREATE TABLE IF NOT EXISTS endpoints_hits_hourly_top
+(
+    bucket  TIMESTAMP WITHOUT TIME ZONE NOT NULL PRIMARY KEY,
+    summary BYTEA NOT NULL
+);
@@ -0,0 +1,87 @@
+package ru.practicum.ewm.stats.server.logic;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import ru.practicum.ewm.stats.dto.ViewStatsDto;
+import ru.practicum.ewm.stats.server.data.EndpointHit;
+import ru.practicum.ewm.stats.server.storage.StatsQuery;
+import ru.practicum.ewm.stats.server.storage.StatsStorage;
+import ru.practicum.ewm.stats.server.storage.TimeSeriesQuery;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class StatsQueryCacheTest {
+    private static final LocalDateTime NOW = LocalDateTime.of(2030, 1, 10, 12, 0);
+
+    private final ListStatsStorage statsStorage = new ListStatsStorage();
+    private final StatsQueryCache statsQueryCache = new StatsQueryCache(statsStorage, new SimpleMeterRegistry(), true, 64);
+
+    @Test
+    void invalidateBeforeDropsEntriesStartingBeforeCutoff() {
+        statsQueryCache.append(List.of(hit(NOW.minusDays(5)), hit(NOW.minusDays(1))));
+        StatsQuery longRange = query(NOW.minusDays(10));
+        StatsQuery shortRange = query(NOW.minusDays(2));
+        assertThat(hits(statsQueryCache.getStats(longRange))).isEqualTo(2);
+        assertThat(hits(statsQueryCache.getStats(shortRange))).isEqualTo(1);
+
+        statsStorage.hits.removeIf(hit -> hit.getHitTimestamp().isBefore(NOW.minusDays(3)));
+        statsQueryCache.invalidateBefore(NOW.minusDays(3));
+        int queries = statsStorage.queries;
+
+        assertThat(hits(statsQueryCache.getStats(longRange))).isEqualTo(1);
+        assertThat(hits(statsQueryCache.getStats(shortRange))).isEqualTo(1);
+        assertThat(statsStorage.queries).isEqualTo(queries + 1);
+    }
+
+    private static long hits(List<ViewStatsDto> stats) {
+        return stats.stream().mapToLong(ViewStatsDto::getHits).sum();
+    }
+
+    private static StatsQuery query(LocalDateTime start) {
+        return StatsQuery.builder()
+                .start(start)
+                .end(NOW)
+                .build();
+    }
+
+    private static EndpointHit hit(LocalDateTime timestamp) {
+        EndpointHit hit = new EndpointHit();
+        hit.setApp("ewm-main-service");
+        hit.setUri("/events/1");
+        hit.setIp("10.0.0.1");
+        hit.setHitTimestamp(timestamp);
+        return hit;
+    }
+
+    private static class ListStatsStorage implements StatsStorage {
+        private final List<EndpointHit> hits = new ArrayList<>();
+        private int queries;
+
+        @Override
+        public void append(List<EndpointHit> appended) {
+            hits.addAll(appended);
+        }
+
+        @Override
+        public List<ViewStatsDto> getStats(StatsQuery query) {
+            queries++;
+            return hits.stream()
+                    .filter(hit -> !hit.getHitTimestamp().isBefore(query.getStart()) && !hit.getHitTimestamp().isAfter(query.getEnd()))
+                    .collect(Collectors.groupingBy(EndpointHit::getUri, Collectors.counting()))
+                    .entrySet().stream()
+                    .map(entry -> new ViewStatsDto("ewm-main-service", entry.getKey(), entry.getValue()))
+                    .collect(Collectors.toList());
+        }
+
+        @Override
+        public Map<LocalDateTime, Long> getTimeSeries(TimeSeriesQuery query) {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
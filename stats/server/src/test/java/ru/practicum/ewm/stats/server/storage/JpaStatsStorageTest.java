@@ -0,0 +1,144 @@
+package ru.practicum.ewm.stats.server.storage;
+
+import io.zonky.test.db.AutoConfigureEmbeddedDatabase;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import ru.practicum.ewm.stats.dto.ViewStatsDto;
+import ru.practicum.ewm.stats.server.data.EndpointHit;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Non-unique stats are served from minute and hour rollups plus raw hits at the range edges. Checks that
+ * the result equals a plain count of the raw hits for ranges on, next to and across minute and hour edges.
+ */
+@SpringBootTest(properties = "stats.cache.enabled=false")
+@AutoConfigureEmbeddedDatabase(provider = AutoConfigureEmbeddedDatabase.DatabaseProvider.ZONKY)
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class JpaStatsStorageTest {
+    private static final LocalDateTime BASE = LocalDateTime.of(2024, 3, 10, 9, 58);
+    private static final int SPAN_SECONDS = 150 * 60;
+    private static final String APP = "ewm-main-service";
+
+    @Autowired
+    private StatsStorage statsStorage;
+
+    private final List<EndpointHit> hits = new ArrayList<>();
+
+    @BeforeAll
+    void appendHits() {
+        Random random = new Random(42);
+        for (int i = 0; i < 3000; i++) {
+            hits.add(hit(random.nextInt(5), random.nextInt(10), BASE.plusSeconds(random.nextInt(SPAN_SECONDS))));
+        }
+        for (LocalDateTime minute = BASE; !minute.isAfter(BASE.plusSeconds(SPAN_SECONDS)); minute = minute.plusMinutes(1)) {
+            hits.add(hit(random.nextInt(5), random.nextInt(10), minute));
+            hits.add(hit(random.nextInt(5), random.nextInt(10), minute.minusSeconds(1)));
+        }
+        for (int from = 0; from < hits.size(); from += 500) {
+            statsStorage.append(hits.subList(from, Math.min(hits.size(), from + 500)));
+        }
+    }
+
+    @Test
+    void rollupStatsEqualRawCountsAcrossMinuteAndHourEdges() {
+        for (LocalDateTime[] range : ranges()) {
+            assertMatchesRaw(range[0], range[1], null);
+            assertMatchesRaw(range[0], range[1], List.of("/events/1", "/events/3"));
+        }
+    }
+
+    @Test
+    void streamedStatsEqualRawCountsAcrossMinuteAndHourEdges() {
+        for (LocalDateTime[] range : ranges()) {
+            for (boolean ordered : new boolean[]{true, false}) {
+                StatsQuery query = query(range[0], range[1], null).toBuilder()
+                        .ordered(ordered)
+                        .build();
+                List<ViewStatsDto> streamed = new ArrayList<>();
+                statsStorage.streamStats(query, streamed::add);
+                assertThat(toCounts(streamed))
+                        .as("stream %s .. %s, ordered %s", range[0], range[1], ordered)
+                        .isEqualTo(rawCounts(range[0], range[1], null));
+            }
+        }
+    }
+
+    private void assertMatchesRaw(LocalDateTime start, LocalDateTime end, List<String> uris) {
+        assertThat(toCounts(statsStorage.getStats(query(start, end, uris))))
+                .as("%s .. %s, uris %s", start, end, uris)
+                .isEqualTo(rawCounts(start, end, uris));
+    }
+
+    private List<LocalDateTime[]> ranges() {
+        LocalDateTime ten = BASE.plusMinutes(2);
+        List<LocalDateTime[]> ranges = new ArrayList<>();
+        ranges.add(range(ten, ten.plusHours(1)));
+        ranges.add(range(ten.minusSeconds(1), ten.plusHours(1).plusSeconds(1)));
+        ranges.add(range(ten.plusSeconds(1), ten.plusHours(1).minusSeconds(1)));
+        ranges.add(range(ten.plusMinutes(15), ten.plusMinutes(45)));
+        ranges.add(range(ten.plusMinutes(15).plusSeconds(30), ten.plusMinutes(45).plusSeconds(30)));
+        ranges.add(range(ten.plusMinutes(30).plusSeconds(10), ten.plusMinutes(30).plusSeconds(50)));
+        ranges.add(range(ten.plusMinutes(30), ten.plusMinutes(31)));
+        ranges.add(range(BASE.plusSeconds(30), ten.plusHours(2).plusMinutes(1).plusSeconds(15)));
+        ranges.add(range(BASE.minusDays(1), BASE.plusDays(1)));
+        Random random = new Random(7);
+        for (int i = 0; i < 40; i++) {
+            LocalDateTime start = BASE.plusSeconds(random.nextInt(SPAN_SECONDS));
+            ranges.add(range(start, start.plusSeconds(1 + random.nextInt(SPAN_SECONDS))));
+        }
+        return ranges;
+    }
+
+    private Map<String, Long> rawCounts(LocalDateTime start, LocalDateTime end, List<String> uris) {
+        Set<String> uriSet = uris == null ? null : new HashSet<>(uris);
+        return hits.stream()
+                .filter(hit -> !hit.getHitTimestamp().isBefore(start) && !hit.getHitTimestamp().isAfter(end))
+                .filter(hit -> uriSet == null || uriSet.contains(hit.getUri()))
+                .collect(Collectors.groupingBy(EndpointHit::getUri, Collectors.counting()));
+    }
+
+    private static Map<String, Long> toCounts(List<ViewStatsDto> stats) {
+        Map<String, Long> counts = new HashMap<>();
+        for (ViewStatsDto viewStatsDto : stats) {
+            assertThat(viewStatsDto.getApp()).isEqualTo(APP);
+            counts.merge(viewStatsDto.getUri(), viewStatsDto.getHits(), Long::sum);
+        }
+        return counts;
+    }
+
+    private static StatsQuery query(LocalDateTime start, LocalDateTime end, List<String> uris) {
+        return StatsQuery.builder()
+                .start(start)
+                .end(end)
+                .uris(uris)
+                .unique(false)
+                .build();
+    }
+
+    private static LocalDateTime[] range(LocalDateTime start, LocalDateTime end) {
+        return new LocalDateTime[]{start, end};
+    }
+
+    private static EndpointHit hit(int uri, int ip, LocalDateTime timestamp) {
+        EndpointHit hit = new EndpointHit();
+        hit.setApp(APP);
+        hit.setUri("/events/" + uri);
+        hit.setIp("10.0.0." + (ip + 1));
+        hit.setHitTimestamp(timestamp);
+        return hit;
+    }
+}
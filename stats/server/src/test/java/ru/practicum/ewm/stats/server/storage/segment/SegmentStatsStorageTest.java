@@ -0,0 +1,144 @@
+package ru.practicum.ewm.stats.server.storage.segment;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import ru.practicum.ewm.stats.dto.ViewStatsDto;
+import ru.practicum.ewm.stats.server.data.EndpointHit;
+import ru.practicum.ewm.stats.server.storage.StatsQuery;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+class SegmentStatsStorageTest {
+    private static final LocalDateTime NOW = LocalDateTime.of(2030, 1, 1, 12, 0);
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void getStatsCountsAppendedHits() throws IOException {
+        SegmentStatsStorage storage = open(1024);
+        storage.append(Arrays.asList(
+                hit("/events/1", "10.0.0.1", NOW),
+                hit("/events/1", "10.0.0.1", NOW.plusMinutes(1)),
+                hit("/events/1", "10.0.0.2", NOW.plusMinutes(2)),
+                hit("/events/2", "::1", NOW.plusMinutes(3))));
+
+        assertThat(storage.getStats(query(null, false)))
+                .extracting(ViewStatsDto::getUri, ViewStatsDto::getHits)
+                .containsExactly(tuple("/events/1", 3L),
+                        tuple("/events/2", 1L));
+        assertThat(storage.getStats(query(List.of("/events/1"), true)))
+                .extracting(ViewStatsDto::getHits)
+                .containsExactly(2L);
+        assertThat(storage.getStats(query(List.of("/events/3"), false))).isEmpty();
+    }
+
+    @Test
+    void getStatsCountsRepeatedUriOnce() throws IOException {
+        SegmentStatsStorage storage = open(1024);
+        storage.append(Arrays.asList(
+                hit("/events/1", "10.0.0.1", NOW),
+                hit("/events/1", "10.0.0.2", NOW)));
+
+        assertThat(storage.getStats(query(List.of("/events/1", "/events/1"), false)))
+                .extracting(ViewStatsDto::getHits)
+                .containsExactly(2L);
+        assertThat(storage.getStats(query(List.of("/events/1", "/events/1"), true)))
+                .extracting(ViewStatsDto::getHits)
+                .containsExactly(2L);
+    }
+
+    @Test
+    void getStatsFiltersByRange() throws IOException {
+        SegmentStatsStorage storage = open(1024);
+        storage.append(Arrays.asList(
+                hit("/events/1", "10.0.0.1", NOW.minusDays(2)),
+                hit("/events/1", "10.0.0.1", NOW),
+                hit("/events/1", "10.0.0.1", NOW.plusDays(2))));
+
+        assertThat(storage.getStats(query(null, false)))
+                .extracting(ViewStatsDto::getHits)
+                .containsExactly(1L);
+    }
+
+    @Test
+    void reopenedStorageKeepsHitsAndDictionary() throws IOException {
+        open(1024).append(Arrays.asList(
+                hit("/events/1", "10.0.0.1", NOW),
+                hit("/events/2", "10.0.0.2", NOW)));
+
+        SegmentStatsStorage reopened = open(1024);
+        reopened.append(Arrays.asList(
+                hit("/events/2", "10.0.0.3", NOW),
+                hit("/events/3", "10.0.0.4", NOW)));
+
+        assertThat(reopened.getStats(query(null, false)))
+                .extracting(ViewStatsDto::getUri, ViewStatsDto::getHits)
+                .containsExactlyInAnyOrder(tuple("/events/1", 1L),
+                        tuple("/events/2", 2L),
+                        tuple("/events/3", 1L));
+    }
+
+    @Test
+    void fullSegmentRollsOverAndSurvivesReopen() throws IOException {
+        SegmentStatsStorage storage = open(2);
+        for (int i = 0; i < 5; i++) {
+            storage.append(List.of(hit("/events/1", "10.0.0." + (i % 3 + 1), NOW.plusSeconds(i))));
+        }
+
+        assertThat(segmentFiles()).hasSize(3);
+        assertThat(storage.getStats(query(null, false)))
+                .extracting(ViewStatsDto::getHits)
+                .containsExactly(5L);
+
+        SegmentStatsStorage reopened = open(2);
+        reopened.append(List.of(hit("/events/1", "10.0.0.4", NOW)));
+
+        assertThat(segmentFiles()).hasSize(3);
+        assertThat(reopened.getStats(query(null, false)))
+                .extracting(ViewStatsDto::getHits)
+                .containsExactly(6L);
+        assertThat(reopened.getStats(query(List.of("/events/1"), true)))
+                .extracting(ViewStatsDto::getHits)
+                .containsExactly(4L);
+    }
+
+    private SegmentStatsStorage open(int segmentRecords) throws IOException {
+        return new SegmentStatsStorage(directory.toString(), segmentRecords);
+    }
+
+    private List<Path> segmentFiles() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(path -> path.getFileName().toString().startsWith("segment-"))
+                    .collect(Collectors.toList());
+        }
+    }
+
+    private static StatsQuery query(List<String> uris, boolean unique) {
+        return StatsQuery.builder()
+                .start(NOW.minusDays(1))
+                .end(NOW.plusDays(1))
+                .uris(uris)
+                .unique(unique)
+                .build();
+    }
+
+    private static EndpointHit hit(String uri, String ip, LocalDateTime timestamp) {
+        EndpointHit hit = new EndpointHit();
+        hit.setApp("ewm-main-service");
+        hit.setUri(uri);
+        hit.setIp(ip);
+        hit.setHitTimestamp(timestamp);
+        return hit;
+    }
+}
@@ -0,0 +1,47 @@
+package ru.practicum.ewm.stats.server.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+class HyperLogLogTest {
+    private static final int SKETCHES = 24;
+
+    @Test
+    void estimateStaysWithinThreeStandardErrorsBeforeAndAfterMerge() {
+        Random random = new Random(42);
+        for (int distinct : new int[]{100, 1000, 5000, 20000, 200000}) {
+            HyperLogLog whole = new HyperLogLog();
+            List<HyperLogLog> parts = new ArrayList<>();
+            for (int i = 0; i < SKETCHES; i++) {
+                parts.add(new HyperLogLog());
+            }
+            Set<String> exact = new HashSet<>();
+            for (int i = 0; i < 2 * distinct; i++) {
+                int visitor = random.nextInt(distinct);
+                String ip = "10." + (visitor >>> 16 & 255) + "." + (visitor >>> 8 & 255) + "." + (visitor & 255);
+                exact.add(ip);
+                whole.add(IpAddresses.toBytes(ip));
+                parts.get(random.nextInt(SKETCHES)).add(IpAddresses.toBytes(ip));
+            }
+            HyperLogLog merged = new HyperLogLog();
+            parts.forEach(merged::merge);
+            double tolerance = 3 * HyperLogLog.STANDARD_ERROR * exact.size();
+
+            assertThat((double) whole.estimate())
+                    .as("estimate of %d distinct", exact.size())
+                    .isCloseTo(exact.size(), within(tolerance));
+            assertThat((double) merged.estimate())
+                    .as("merged estimate of %d distinct", exact.size())
+                    .isCloseTo(exact.size(), within(tolerance));
+            assertThat(merged.toBytes()).isEqualTo(whole.toBytes());
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package ru.practicum.ewm.stats.server.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SpaceSavingTest {
+    private static final int CAPACITY = 50;
+    private static final int KEYS = 2000;
+
+    @Test
+    void skewedStreamKeepsHeavyHittersWithinErrorBounds() {
+        SpaceSaving summary = new SpaceSaving(CAPACITY);
+        Map<Long, Long> exact = new HashMap<>();
+        addSkewed(summary, exact, new Random(42), 100000);
+
+        assertBounds(summary, exact);
+    }
+
+    @Test
+    void mergedSummaryKeepsHeavyHittersWithinErrorBounds() {
+        SpaceSaving first = new SpaceSaving(CAPACITY);
+        SpaceSaving second = new SpaceSaving(CAPACITY);
+        Map<Long, Long> exact = new HashMap<>();
+        addSkewed(first, exact, new Random(1), 60000);
+        addSkewed(second, exact, new Random(2), 40000);
+
+        first.merge(second);
+
+        assertBounds(first, exact);
+    }
+
+    @Test
+    void bytesRoundTripUnchanged() {
+        SpaceSaving summary = new SpaceSaving(CAPACITY);
+        addSkewed(summary, new HashMap<>(), new Random(7), 20000);
+        byte[] bytes = summary.toBytes();
+
+        SpaceSaving restored = SpaceSaving.fromBytes(bytes, CAPACITY);
+
+        assertThat(restored.toBytes()).isEqualTo(bytes);
+        assertThat(restored.top(CAPACITY))
+                .usingRecursiveFieldByFieldElementComparator()
+                .containsExactlyElementsOf(summary.top(CAPACITY));
+    }
+
+    private static void addSkewed(SpaceSaving summary, Map<Long, Long> exact, Random random, int hits) {
+        for (int i = 0; i < hits; i++) {
+            long key = (long) Math.pow(KEYS, random.nextDouble());
+            summary.add(key, 1);
+            exact.merge(key, 1L, Long::sum);
+        }
+    }
+
+    private static void assertBounds(SpaceSaving summary, Map<Long, Long> exact) {
+        long total = exact.values().stream().mapToLong(Long::longValue).sum();
+        assertThat(exact).hasSizeGreaterThan(CAPACITY);
+        assertThat(summary.top(Integer.MAX_VALUE)).hasSize(CAPACITY);
+        Set<Long> tracked = summary.top(CAPACITY).stream()
+                .map(SpaceSaving.Counter::getKey)
+                .collect(Collectors.toSet());
+        exact.forEach((key, count) -> {
+            if (count > total / CAPACITY) {
+                assertThat(tracked).as("heavy hitter %d with %d hits", key, count).contains(key);
+            }
+        });
+        for (SpaceSaving.Counter counter : summary.top(CAPACITY)) {
+            long count = exact.getOrDefault(counter.getKey(), 0L);
+            assertThat(count)
+                    .as("key %d", counter.getKey())
+                    .isBetween(counter.getCount() - counter.getError(), counter.getCount());
+        }
+    }
+}